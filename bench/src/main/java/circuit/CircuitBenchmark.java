@@ -0,0 +1,86 @@
+package circuit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction, solution and reads of whole circuits, over the generated networks from 10 to 10^6 nodes.
+ * The largest sizes take long to factor, so a run is usually narrowed with -p nodes=... and -p topology=...
+ * Created by admin on 10/18/26.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CircuitBenchmark
+{
+    static final long SEED = 1;
+
+    @Param({"LADDER", "GRID", "RANDOM"})
+    Networks.Topology topology;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    int nodes;
+
+    Networks network;
+    int edits;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        network = new Networks(topology, nodes, SEED);
+        network.circuit.system.solveAll();
+    }
+
+    // methods
+
+    // add every node and component, and set their relations
+    @Benchmark
+    public Circuit build()
+    {
+        return new Networks(topology, nodes, SEED).circuit;
+    }
+
+    // solve again with the same relations and values, reusing the factorization
+    @Benchmark
+    public boolean solve()
+    {
+        network.circuit.system.invalidate();
+        return network.circuit.system.solveAll();
+    }
+
+    // change one resistance and solve, which updates or recomputes the factorization
+    @Benchmark
+    public boolean edit()
+    {
+        Resistor r = network.resistors.get(edits++ % network.resistors.size());
+        r.setResistance(r.getResistance() == 1 ? 2 : 1);
+        network.circuit.update();
+        return network.circuit.system.solveAll();
+    }
+
+    // read the potential of every node and the current of every resistor of a solved circuit
+    @Benchmark
+    public void read(Blackhole hole)
+    {
+        for (Node node : network.nodes)
+            hole.consume(node.getPotential());
+        for (Resistor r : network.resistors)
+            hole.consume(r.currentFromStart());
+    }
+}
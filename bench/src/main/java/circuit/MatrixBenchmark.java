@@ -0,0 +1,94 @@
+package circuit;
+
+import circuit.aux.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row operations and products of dense matrices, each applied to every row of a square matrix.
+ * Row operations alternate their sign between invocations, so that the entries stay bounded however long they run.
+ * Created by admin on 10/18/26.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark
+{
+    @Param({"10", "100", "1000"})
+    int size;
+
+    Matrix matrix;
+    double[][] rows; // copies of the rows of matrix
+    double[] vector;
+    double sign = 1;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Random random = new Random(1);
+
+        matrix = new Matrix(size, size);
+        vector = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+                matrix.set(i, j, random.nextDouble());
+            vector[i] = random.nextDouble();
+        }
+
+        rows = new double[size][];
+        for (int i = 0; i < size; i++)
+            rows[i] = matrix.getRow(i);
+    }
+
+    // methods
+
+    // add a multiple of the first row to every other row, as one elimination step does
+    @Benchmark
+    public Matrix addRow()
+    {
+        sign = -sign;
+        for (int i = 1; i < size; i++)
+            matrix.addRow(i, 0, 0.5 * sign);
+        return matrix;
+    }
+
+    @Benchmark
+    public Matrix multiplyRow()
+    {
+        for (int i = 0; i < size; i++)
+            matrix.multiplyRow(i, -1);
+        return matrix;
+    }
+
+    @Benchmark
+    public double[] transform()
+    {
+        return matrix.transform(vector);
+    }
+
+    @Benchmark
+    public double scalarProduct()
+    {
+        double res = 0;
+        for (int i = 0; i < size; i++)
+            res += Matrix.scalarProduct(rows[i], vector);
+        return res;
+    }
+}
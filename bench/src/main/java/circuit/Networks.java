@@ -0,0 +1,112 @@
+package circuit;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generators of resistor networks of a given number of nodes, for measuring how the simulator scales.
+ * Every network is connected, has its first node fixed at 0 and is driven by a single source, so that it has
+ * exactly one solution.
+ * Created by admin on 10/18/26.
+ */
+class Networks
+{
+    enum Topology {LADDER, GRID, RANDOM}
+
+    static final int EXTRA = 2; // random edges per node on top of the spanning tree, out of 4
+
+    Circuit circuit;
+    ArrayList<Node> nodes;
+    ArrayList<Resistor> resistors;
+    Component source;
+
+    Networks(Topology topology, int size, long seed)
+    {
+        circuit = new Circuit();
+        nodes = new ArrayList<>(size);
+        resistors = new ArrayList<>();
+
+        // relations are only set once every element is in
+        circuit.begin();
+        switch (topology)
+        {
+            case LADDER:
+                ladder(size);
+                break;
+            case GRID:
+                grid(size);
+                break;
+            case RANDOM:
+                random(size, new Random(seed));
+                break;
+        }
+        nodes.get(0).setPotential(0);
+        circuit.commit();
+    }
+
+    // methods
+
+    private void addNodes(int size)
+    {
+        for (int i = 0; i < size; i++)
+            nodes.add(new Node(circuit));
+    }
+
+    private void connect(int i, int j, double resistance)
+    {
+        resistors.add(new Resistor(circuit, nodes.get(i), nodes.get(j), resistance));
+    }
+
+    // two rails of resistors joined by rungs, driven by a voltage source across the first rung
+    private void ladder(int size)
+    {
+        int rungs = Math.max(size / 2, 1);
+        addNodes(2 * rungs);
+
+        for (int i = 0; i < rungs; i++)
+        {
+            if (i + 1 < rungs)
+            {
+                connect(2 * i, 2 * i + 2, 1);
+                connect(2 * i + 1, 2 * i + 3, 1);
+            }
+            if (i > 0)
+                connect(2 * i, 2 * i + 1, 10);
+        }
+        source = new VoltageSource(circuit, nodes.get(0), nodes.get(1), 1);
+    }
+
+    // square mesh of unit resistors, with a unit current from one corner to the other
+    private void grid(int size)
+    {
+        int side = Math.max((int) Math.ceil(Math.sqrt(size)), 2);
+        addNodes(side * side);
+
+        for (int i = 0; i < side; i++)
+            for (int j = 0; j < side; j++)
+            {
+                if (j + 1 < side)
+                    connect(i * side + j, i * side + j + 1, 1);
+                if (i + 1 < side)
+                    connect(i * side + j, (i + 1) * side + j, 1);
+            }
+        source = new CurrentSource(circuit, nodes.get(0), nodes.get(side * side - 1), 1);
+    }
+
+    // random spanning tree with random edges added, resistances between 1 and 10
+    private void random(int size, Random random)
+    {
+        size = Math.max(size, 2);
+        addNodes(size);
+
+        for (int i = 1; i < size; i++)
+            connect(random.nextInt(i), i, 1 + 9 * random.nextDouble());
+        for (int k = 0; k < EXTRA * size / 4; k++)
+        {
+            int i = random.nextInt(size), j = random.nextInt(size);
+            if (i != j)
+                connect(i, j, 1 + 9 * random.nextDouble());
+        }
+        source = new CurrentSource(circuit, nodes.get(0), nodes.get(size - 1), 1);
+    }
+}
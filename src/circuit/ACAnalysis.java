@@ -0,0 +1,226 @@
+package circuit;
+
+import circuit.aux.ComplexSparseLU;
+import circuit.aux.Parallel;
+import circuit.aux.SparseMatrix;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A small signal analysis of a circuit over frequency.
+ * Capacitors and inductors take their complex impedances. Only the sources given an excitation drive the circuit:
+ * every other value that is set, whether a source or a fixed potential, stays at its operating point and is 0 in the
+ * small signal, so fixed nodes act as ground. Frequency points are solved in parallel, each chunk of them
+ * factoring on its own with the shared column ordering.
+ * The circuit is captured when the analysis is created, and later changes to it are not seen.
+ * Created by admin on 10/18/26.
+ */
+public class ACAnalysis
+{
+    static final int CHUNK = 16; // most frequency points solved by each task
+
+    final Circuit circuit;
+    Assembly assembly;
+    ComplexSparseLU symbolic; // analysis shared by every factorization
+    double[] values;          // interleaved values of the entries, without the impedances of storage elements
+    int[] entries;            // entry of each capacitor and inductor holding its impedance
+    double[] storages;        // capacitance, or inductance
+    ArrayList<Integer> excitationVars = new ArrayList<>();
+    ArrayList<double[]> excitations = new ArrayList<>(); // real and imaginary part of each excitation
+    ArrayList<CircuitVar> probes = new ArrayList<>();
+
+    public ACAnalysis(Circuit circuit)
+    {
+        this.circuit = circuit;
+
+        circuit.update();
+        LinearSystem system = circuit.system;
+        assembly = new Assembly(system);
+        if (!assembly.consistent)
+            throw new IllegalStateException("System has no solution");
+
+        // capacitors get jwC in their current relation at the voltage, inductors jwL at the current
+        ArrayList<Component> elements = new ArrayList<>();
+        for (Component comp : circuit.components)
+            if (comp instanceof Capacitor || comp instanceof Inductor)
+                elements.add(comp);
+
+        SparseMatrix a = new SparseMatrix(assembly.matrix);
+        int[] rows = new int[elements.size()], cols = new int[elements.size()];
+        storages = new double[elements.size()];
+
+        for (int k = 0; k < rows.length; k++)
+        {
+            Component comp = elements.get(k);
+            boolean inductor = comp instanceof Inductor;
+
+            rows[k] = assembly.row(system, comp.current.varIndex);
+            cols[k] = assembly.columns[(inductor ? comp.current : comp.voltage).varIndex];
+            storages[k] = inductor ? ((Inductor) comp).inductance : ((Capacitor) comp).capacitance;
+            if (rows[k] == -1 || cols[k] == -1)
+                throw new IllegalArgumentException("Storage element with fixed current or voltage");
+
+            // placeholder, so that the entry is part of the pattern at every frequency
+            a.set(rows[k], cols[k], 1);
+        }
+
+        values = new double[2 * a.getNonzeros()];
+        int[] offsets = new int[a.getRows()];
+        for (int i = 0, e = 0; i < a.getRows(); i++)
+        {
+            offsets[i] = e;
+            for (int k = 0; k < a.getLength(i); k++, e++)
+                values[2 * e] = a.getValue(i, k);
+        }
+
+        entries = new int[rows.length];
+        for (int t = 0; t < rows.length; t++)
+        {
+            int k = 0;
+            while (a.getIndex(rows[t], k) != cols[t])
+                k++;
+            entries[t] = offsets[rows[t]] + k;
+            values[2 * entries[t]] = 0;
+        }
+
+        symbolic = new ComplexSparseLU();
+        symbolic.analyze(a);
+    }
+
+    // methods
+
+    // drive source with a phasor of the given magnitude and phase in radians, instead of its value
+    public void setExcitation(VoltageSource source, double magnitude, double phase)
+    {
+        addExcitation(source, source.voltage, magnitude, phase);
+    }
+
+    public void setExcitation(CurrentSource source, double magnitude, double phase)
+    {
+        addExcitation(source, source.current, magnitude, phase);
+    }
+
+    private void addExcitation(Component source, CircuitVar var, double magnitude, double phase)
+    {
+        if (source.getCircuit() != circuit || var.varIndex >= assembly.columns.length
+            || assembly.columns[var.varIndex] != -1)
+            throw new IllegalArgumentException("Source not in analysis");
+
+        double[] phasor = {magnitude * Math.cos(phase), magnitude * Math.sin(phase)};
+        int index = excitationVars.indexOf(var.varIndex);
+        if (index == -1)
+        {
+            excitationVars.add(var.varIndex);
+            excitations.add(phasor);
+        }
+        else
+            excitations.set(index, phasor);
+    }
+
+    // each probe returns its index in the results of a sweep
+
+    public int probePotential(Node node)
+    {
+        return probe(node.potential);
+    }
+
+    public int probeCurrent(Component comp)
+    {
+        return probe(comp.current);
+    }
+
+    public int probeVoltage(Component comp)
+    {
+        return probe(comp.voltage);
+    }
+
+    private int probe(CircuitVar var)
+    {
+        if (var.parent.getCircuit() != circuit || var.varIndex >= assembly.columns.length)
+            throw new IllegalArgumentException("Probe not in analysis");
+
+        probes.add(var);
+        return probes.size() - 1;
+    }
+
+    public int getProbes() { return probes.size(); }
+
+    // frequencies from start to stop spaced evenly on a logarithmic scale, with the given number of points per decade
+    public static double[] decades(double start, double stop, int points)
+    {
+        int n = (int) Math.floor(Math.log10(stop / start) * points + 1e-9) + 1;
+        double[] res = new double[n];
+
+        for (int k = 0; k < n; k++)
+            res[k] = start * Math.pow(10, (double) k / points);
+        return res;
+    }
+
+    // magnitude and phase in radians of each probe at each frequency in hertz, stored as
+    // res[probe][2 * f] and res[probe][2 * f + 1], NaN where the value is undetermined
+    public double[][] sweep(double[] frequencies)
+    {
+        int n = frequencies.length, m = assembly.rhs.length;
+        double[][] res = new double[probes.size()][2 * n];
+        double[] b = new double[2 * m];
+
+        // constant terms of the small signal, from the excitations alone
+        double[] re = new double[m], im = new double[m];
+        for (int w = 0; w < excitationVars.size(); w++)
+        {
+            int var = excitationVars.get(w);
+            assembly.shift(re, var, excitations.get(w)[0]);
+            assembly.shift(im, var, excitations.get(w)[1]);
+        }
+        for (int i = 0; i < m; i++)
+        {
+            b[2 * i] = re[i];
+            b[2 * i + 1] = im[i];
+        }
+
+        // smaller chunks for short sweeps, so that every core gets a share
+        int size = Math.max(1, Math.min(CHUNK, n / (4 * ForkJoinPool.getCommonPoolParallelism())));
+
+        Parallel.forEach(0, (n + size - 1) / size, chunk -> {
+            ComplexSparseLU lu = new ComplexSparseLU(symbolic);
+            double[] a = values.clone();
+
+            for (int f = chunk * size; f < Math.min(n, (chunk + 1) * size); f++)
+            {
+                double omega = 2 * Math.PI * frequencies[f];
+                for (int k = 0; k < entries.length; k++)
+                    a[2 * entries[k] + 1] = omega * storages[k];
+
+                lu.factor(a);
+                double[] x = lu.solve(b);
+                boolean[] determined = x == null ? null : lu.determined();
+
+                for (int p = 0; p < res.length; p++)
+                {
+                    int var = probes.get(p).varIndex, col = assembly.columns[var];
+                    double xr, xi;
+
+                    if (col == -1)
+                    {
+                        int w = excitationVars.indexOf(var);
+                        xr = w == -1 ? 0 : excitations.get(w)[0];
+                        xi = w == -1 ? 0 : excitations.get(w)[1];
+                    }
+                    else if (x != null && determined[col])
+                    {
+                        xr = x[2 * col];
+                        xi = x[2 * col + 1];
+                    }
+                    else
+                        xr = xi = Double.NaN;
+
+                    res[p][2 * f] = Math.sqrt(xr * xr + xi * xi);
+                    res[p][2 * f + 1] = Math.atan2(xi, xr);
+                }
+            }
+        });
+
+        return res;
+    }
+}
@@ -0,0 +1,196 @@
+package circuit;
+
+import circuit.aux.BinaryInput;
+import circuit.aux.BinaryOutput;
+import circuit.aux.SparseMatrix;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The relations of a linear system restricted to its free variables, with bound variables moved to the constant terms.
+ * Created by admin on 10/18/26.
+ */
+class Assembly
+{
+    SparseMatrix matrix; // coefficients of the free variables, one row per nonempty relation
+    SparseMatrix bound;  // coefficients of the bound variables, one row per variable and one column per row of matrix
+    double[] rhs;        // constant terms minus the contribution of bound variables
+    int[] columns,       // column of each variable in matrix, -1 if bound
+          variables,     // variable of each column
+          rows;          // relation of each row
+    boolean consistent;  // false if a relation between bound variables only does not hold
+
+    Assembly() {}
+
+    Assembly(LinearSystem system)
+    {
+        this(system, null);
+    }
+
+    // assembly of the relations defined by the variables of block, or of the whole system if block is null
+    // variables of the assembly are positions in the block, and every variable of its relations has to be in it
+    Assembly(LinearSystem system, Block block)
+    {
+        SparseMatrix relations = system.relations;
+        int n = block == null ? relations.getCols() : block.size, m = 0, cols = 0, size, var, count;
+        int[] indices = new int[n], relRows;
+        double[] coeffs = new double[n];
+        double c;
+
+        columns = new int[n];
+        for (int j = 0; j < n; j++)
+            columns[j] = system.values.get(block == null ? j : block.vars[j]) == null ? cols++ : -1;
+
+        variables = new int[cols];
+        for (int j = 0; j < n; j++)
+            if (columns[j] != -1)
+                variables[columns[j]] = j;
+
+        // every row of the whole system, or the rows in use of the variables of the block
+        if (block == null)
+        {
+            relRows = new int[relations.getRows()];
+            for (int i = 0; i < relRows.length; i++)
+                relRows[i] = i;
+        }
+        else
+        {
+            count = 0;
+            for (int j = 0; j < n; j++)
+                count += system.relCounts.get(block.vars[j]);
+            relRows = new int[count];
+            count = 0;
+            for (int j = 0; j < n; j++)
+            {
+                List<Integer> rows = system.relIndices.get(block.vars[j]);
+                for (int k = 0; k < system.relCounts.get(block.vars[j]); k++)
+                    relRows[count++] = rows.get(k);
+            }
+        }
+
+        matrix = new SparseMatrix(0, cols);
+        bound = new SparseMatrix(0, n);
+        rhs = new double[relRows.length];
+        rows = new int[relRows.length];
+        consistent = true;
+
+        for (int i : relRows)
+        {
+            // move bound variables to the constant term
+            c = system.constants.get(i);
+            size = 0;
+            for (int k = 0; k < relations.getLength(i); k++)
+            {
+                var = relations.getIndex(i, k);
+                int j = block == null ? var : system.positions[var];
+                if (columns[j] == -1)
+                    c -= system.values.get(var) * relations.getValue(i, k);
+                else
+                {
+                    indices[size] = columns[j];
+                    coeffs[size++] = relations.getValue(i, k);
+                }
+            }
+
+            if (size == 0)
+            {
+                // the relation either holds or the system has no solution
+                if (Math.abs(c) > 1e-9 * (1 + Math.abs(system.constants.get(i))))
+                    consistent = false;
+                continue;
+            }
+
+            if (block != null)
+                sort(indices, coeffs, size);
+            matrix.adjoinRow(-1, indices, coeffs, size);
+            rhs[m] = c;
+            rows[m++] = i;
+
+            // keep the coefficients of bound variables, so that the constant terms can be found for other values
+            bound.createRow(-1);
+            for (int k = 0; k < relations.getLength(i); k++)
+            {
+                var = relations.getIndex(i, k);
+                int j = block == null ? var : system.positions[var];
+                if (columns[j] == -1)
+                    bound.set(m - 1, j, relations.getValue(i, k));
+            }
+        }
+
+        rhs = Arrays.copyOf(rhs, m);
+        rows = Arrays.copyOf(rows, m);
+        bound = bound.transpose();
+    }
+
+    // sort the first size indices, and their coefficients with them, since positions in a block need not follow
+    // the order of the variables
+    private static void sort(int[] indices, double[] coeffs, int size)
+    {
+        for (int k = 1; k < size; k++)
+        {
+            int index = indices[k], t = k;
+            double coeff = coeffs[k];
+            for (; t > 0 && indices[t - 1] > index; t--)
+            {
+                indices[t] = indices[t - 1];
+                coeffs[t] = coeffs[t - 1];
+            }
+            indices[t] = index;
+            coeffs[t] = coeff;
+        }
+    }
+
+    // change the constant terms in b for bound variable var changing by delta
+    void shift(double[] b, int var, double delta)
+    {
+        for (int k = 0; k < bound.getLength(var); k++)
+            b[bound.getIndex(var, k)] -= bound.getValue(var, k) * delta;
+    }
+
+    // row of matrix holding the relation defined by var, -1 if there is none
+    int row(LinearSystem system, int var)
+    {
+        if (system.relCounts.get(var) == 0)
+            return -1;
+
+        int relation = system.relIndices.get(var).get(0);
+        for (int i = 0; i < rows.length; i++)
+            if (rows[i] == relation)
+                return i;
+        return -1;
+    }
+
+    void write(BinaryOutput out) throws IOException
+    {
+        matrix.write(out);
+        bound.write(out);
+        out.putInt(rhs.length);
+        out.putDoubles(rhs, 0, rhs.length);
+        out.putInt(columns.length);
+        out.putInts(columns, 0, columns.length);
+        out.putInts(variables, 0, variables.length);
+        out.putInts(rows, 0, rows.length);
+        out.putByte(consistent ? (byte) 1 : 0);
+    }
+
+    // read an assembly written by write
+    static Assembly read(BinaryInput in) throws IOException
+    {
+        Assembly res = new Assembly();
+
+        res.matrix = SparseMatrix.read(in);
+        res.bound = SparseMatrix.read(in);
+        res.rhs = new double[in.getInt()];
+        in.getDoubles(res.rhs, 0, res.rhs.length);
+        res.columns = new int[in.getInt()];
+        in.getInts(res.columns, 0, res.columns.length);
+        res.variables = new int[res.matrix.getCols()];
+        in.getInts(res.variables, 0, res.variables.length);
+        res.rows = new int[res.rhs.length];
+        in.getInts(res.rows, 0, res.rows.length);
+        res.consistent = in.getByte() != 0;
+        return res;
+    }
+}
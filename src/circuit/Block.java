@@ -0,0 +1,163 @@
+package circuit;
+
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+import circuit.metrics.Instrumentation;
+import circuit.metrics.Phase;
+import circuit.metrics.Span;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A set of variables of a linear system that no relation connects to any other, assembled, factored and solved
+ * on its own. Separate nets of a circuit end up in separate blocks, so that editing one of them leaves the
+ * factorizations and solutions of the others as they are.
+ * The block of the whole system has no variable list, and serves the analyses that work on every variable at once.
+ * Created by admin on 10/18/26.
+ */
+class Block
+{
+    int[] vars;          // variables of the block, null for the whole system
+    int size;
+    SparseLU lu;         // factorization of the last assembled system, created on the first
+    Assembly factored;   // assembled system whose values lu currently holds
+    boolean[] determined; // columns of factored that do not depend on free columns
+    boolean solved,      // whether the bindings of the variables hold the solution of the current relations and values
+            solvable;    // whether the last solution found the block consistent
+
+    Block()
+    {
+        lu = new SparseLU();
+    }
+
+    Block(int var)
+    {
+        vars = new int[]{var};
+        size = 1;
+    }
+
+    // methods
+
+    // variable of the system at position j of the block
+    protected int var(int j)
+    {
+        return vars == null ? j : vars[j];
+    }
+
+    protected void add(int var)
+    {
+        if (size == vars.length)
+            vars = Arrays.copyOf(vars, 2 * size);
+        vars[size++] = var;
+    }
+
+    // bind every variable of the block the relations determine, returns false if the block has no solution
+    protected boolean solve(LinearSystem system)
+    {
+        Assembly assembly;
+        double[] x;
+
+        // start from the assigned values, leaving undetermined variables unbound
+        int n = vars == null ? system.values.size() : size;
+        for (int j = 0; j < n; j++)
+            system.bindings.set(var(j), system.values.get(var(j)));
+
+        assembly = assemble(system);
+        if (assembly == null)
+            return false;
+
+        Span span = Instrumentation.begin(Phase.SOLVE);
+        x = lu.solve(assembly.rhs);
+        if (span != null)
+        {
+            span.end(assembly.rhs.length);
+            Instrumentation.getMetrics().solved();
+        }
+        if (x == null)
+            return false;
+
+        for (int j = 0; j < x.length; j++)
+            if (determined[j])
+                system.bind(var(assembly.variables[j]), x[j]);
+
+        return true;
+    }
+
+    // assemble the relations and bring lu up to date with them, null if a relation between bound variables fails
+    protected Assembly assemble(LinearSystem system)
+    {
+        Span span = Instrumentation.begin(Phase.ASSEMBLE);
+        Assembly assembly = new Assembly(system, vars == null ? null : this);
+        if (span != null)
+            span.end(assembly.matrix.getRows(), assembly.matrix.getNonzeros());
+
+        if (!assembly.consistent)
+            return null;
+
+        if (lu == null)
+            lu = new SparseLU();
+        span = Instrumentation.begin(Phase.FACTOR);
+        factor(assembly, system.updateLimit, system.mixed);
+        if (span != null)
+            span.end(assembly.matrix.getRows(), lu.getNonzeros());
+        return assembly;
+    }
+
+    // bring lu up to date with the assembled matrix, reusing as much of the last factorization as possible
+    private void factor(Assembly assembly, int updateLimit, boolean mixed)
+    {
+        SparseMatrix a = assembly.matrix;
+        int updates = lu.getUpdates();
+
+        // the ordering only depends on the pattern, so it is kept while the topology stays the same
+        if (!lu.isAnalyzed(a))
+            lu.analyze(a);
+        else if (factored != null && Arrays.equals(assembly.variables, factored.variables)
+                 && Arrays.equals(assembly.rows, factored.rows) && update(factored.matrix, a, updateLimit))
+        {
+            // changes in values only were applied to the factorization, if any
+            if (Instrumentation.isEnabled())
+                Instrumentation.getMetrics().reused(lu.getUpdates() - updates);
+            factored = assembly;
+            return;
+        }
+
+        lu.factor(a);
+        factored = assembly;
+        determined = lu.determined();
+
+        // the analyses on the whole system need the factors in double precision
+        if (mixed && vars != null && lu.getRank() == a.getCols())
+            lu.round();
+        if (Instrumentation.isEnabled())
+            Instrumentation.getMetrics().factored(a, lu);
+    }
+
+    // apply the entries of a that differ from last as rank one updates, returns false if a refactor is needed
+    private boolean update(SparseMatrix last, SparseMatrix a, int updateLimit)
+    {
+        ArrayList<int[]> changes = new ArrayList<>();
+
+        for (int i = 0; i < a.getRows(); i++)
+            for (int k = 0; k < a.getLength(i); k++)
+                if (a.getValue(i, k) != last.getValue(i, k))
+                    changes.add(new int[]{i, k});
+
+        if (changes.isEmpty())
+            return true;
+
+        // too many updates let the rounding errors of the correction terms add up
+        if (lu.getUpdates() + changes.size() > updateLimit)
+            return false;
+
+        for (int[] change : changes)
+        {
+            int i = change[0], k = change[1];
+            if (!lu.update(i, a.getIndex(i, k), a.getValue(i, k) - last.getValue(i, k)))
+                return false;
+        }
+
+        return true;
+    }
+}
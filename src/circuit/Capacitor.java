@@ -0,0 +1,36 @@
+package circuit;
+
+import circuit.aux.Pair;
+
+/**
+ * A capacitor, through which no current flows in a steady state.
+ * Its current is bound to the rate of change of its voltage in transient analysis.
+ * Created by admin on 10/18/26.
+ */
+public class Capacitor extends Component
+{
+    double capacitance;
+
+    public Capacitor(Circuit circuit, Node start, Node end, double value)
+    {
+        super(circuit, start, end);
+        capacitance = value;
+    }
+
+    public double getCapacitance()
+    {
+        return capacitance;
+    }
+
+    public void setCapacitance(double capacitance)
+    {
+        // only the transient companion model depends on the value
+        this.capacitance = capacitance;
+    }
+
+    protected void setCurrentRelations()
+    {
+        // open circuit, the transient companion model adds the voltage term to this relation
+        current.addRelation(0, new Pair<>(current, 1.0));
+    }
+}
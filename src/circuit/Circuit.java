@@ -1,6 +1,11 @@
 package circuit;
 
-import java.util.LinkedList;
+import circuit.aux.Statistics;
+import circuit.metrics.Instrumentation;
+import circuit.metrics.Phase;
+import circuit.metrics.Span;
+
+import java.util.LinkedHashSet;
 
 /**
  * An electrical circuit containing nodes and components.
@@ -8,54 +13,186 @@ import java.util.LinkedList;
  */
 public class Circuit
 {
-    LinkedList<Node> nodes;
-    LinkedList<Component> components;
+    LinkedHashSet<Node> nodes;           // in the order they were added
+    LinkedHashSet<Component> components;
     LinearSystem system;
+    LinkedHashSet<CircuitElement> dirty; // elements whose relations have to be set again
+    int edits;                           // depth of nested batch edits, relations are set once the outermost one ends
 
     public Circuit()
     {
-        nodes = new LinkedList<>();
-        components = new LinkedList<>();
+        nodes = new LinkedHashSet<>();
+        components = new LinkedHashSet<>();
         system = new LinearSystem();
+        dirty = new LinkedHashSet<>();
     }
 
     protected void addNode(Node node)
     {
         // check if already exists
-        if (!nodes.contains(node))
-        {
-            nodes.add(node);
-            // update();
-        }
+        if (nodes.add(node))
+            markDirty(node);
     }
 
     protected void addComponent(Component comp)
     {
-        if (!components.contains(comp))
+        if (components.add(comp))
         {
-            components.add(comp);
-            // update();
+            // the kcl relations of both ends change as well
+            markDirty(comp);
+            markDirty(comp.start);
+            markDirty(comp.end);
         }
     }
 
     public void removeNode(Node node)
     {
+        if (!nodes.contains(node))
+            return;
+
+        // the components of node are removed in the same batch
+        begin();
         node.remove();
         nodes.remove(node);
-        update();
+        dirty.remove(node);
+        commit();
     }
 
     public void removeComponent(Component comp)
     {
+        if (!components.remove(comp))
+            return;
+
         comp.remove();
-        components.remove(comp);
-        update();
+        dirty.remove(comp);
+
+        if (nodes.contains(comp.start))
+            markDirty(comp.start);
+        if (nodes.contains(comp.end))
+            markDirty(comp.end);
+
+        if (edits == 0)
+            update();
+    }
+
+    // remove every node and component in elements, setting the relations once at the end
+    public void remove(Iterable<? extends CircuitElement> elements)
+    {
+        begin();
+        for (CircuitElement element : elements)
+        {
+            if (element instanceof Node)
+                removeNode((Node) element);
+            else
+                removeComponent((Component) element);
+        }
+        commit();
+    }
+
+    // start a batch of edits, during which removals do not set relations until commit is called
+    // batches can be nested, and reading a value within one sets the relations changed so far
+    public void begin()
+    {
+        edits++;
+    }
+
+    // end a batch of edits, setting the relations of everything changed in it if it is the outermost one
+    public void commit()
+    {
+        if (edits == 0)
+            throw new IllegalStateException("No batch to commit");
+
+        if (--edits == 0)
+            update();
     }
 
+    // mark element so that its relations are set again on the next update
+    protected void markDirty(CircuitElement element)
+    {
+        dirty.add(element);
+    }
+
+    // set the relations of the elements that changed since the last update
     protected void update()
     {
-        nodes.forEach(Node::setRelations);
-        components.forEach(Component::setRelations);
+        if (dirty.isEmpty())
+            return;
+
+        Span span = Instrumentation.begin(Phase.RESTAMP);
+        int size = dirty.size();
+        dirty.forEach(CircuitElement::setRelations);
+        dirty.clear();
+        if (span != null)
+            span.end(size);
+    }
+
+    // number of element value changes applied to the last factorization as rank one updates before it is recomputed
+    // 0 refactors after every change of the coefficients
+    public void setUpdateLimit(int limit)
+    {
+        system.updateLimit = limit;
+    }
+
+    // keep the factorizations in single precision and refine each solution in double precision against the relations,
+    // factoring again in double precision when the refinement does not converge
+    // rounded factorizations are refactored on every change of the coefficients, as they take no rank one updates
+    public void setMixedPrecision(boolean mixed)
+    {
+        system.mixed = mixed;
+
+        // factor every block again in the new precision on the next solve
+        for (Block block : system.blocks)
+            block.factored = null;
+        system.invalidate();
+    }
+
+    // solve networks of resistors and current sources with fixed potentials by conjugate gradients, until the residual
+    // relative to the source currents is below tolerance, falling back to the factorization otherwise
+    // a null preconditioner always factors
+    public void setIterativeSolver(NodalSolver.Preconditioner preconditioner, double tolerance, int maxIterations)
+    {
+        system.nodal = preconditioner == null ? null
+                                              : new NodalSolver(this, preconditioner, false, tolerance, maxIterations);
+        system.invalidate();
+    }
+
+    // solve the same networks by algebraic multigrid V-cycles alone, at most maxCycles of them
+    public void setMultigridSolver(double tolerance, int maxCycles)
+    {
+        system.nodal = new NodalSolver(this, NodalSolver.Preconditioner.MULTIGRID, true, tolerance, maxCycles);
+        system.invalidate();
+    }
+
+    // collapse resistors in series, in parallel and dangling before solving, and find their values from the smaller
+    // circuit that is left
+    public void setNetworkReduction(boolean reduce)
+    {
+        system.reduction = reduce ? new NetworkReduction(this) : null;
+        system.invalidate();
+    }
+
+    // solver set by setIterativeSolver or setMultigridSolver, with the statistics of its last solve
+    public NodalSolver getIterativeSolver() { return system.nodal; }
+
+    // immutable snapshot of the circuit as it is now, which can be queried from any thread
+    public CompiledCircuit compile()
+    {
+        update();
+        return new CompiledCircuit(this);
+    }
+
+    // values of the probes of sweep at each of its points, without changing the circuit
+    public double[][] sweep(Sweep sweep)
+    {
+        update();
+        return sweep.run(this);
+    }
+
+    // statistics of the probes of analysis over the given number of trials, without changing the circuit
+    public Statistics[] monteCarlo(MonteCarlo analysis, int trials, long seed)
+    {
+        update();
+        return analysis.run(this, trials, seed);
     }
 
     public double getVoltageBetween(Node start, Node end)
@@ -2,7 +2,6 @@ package circuit;
 
 import circuit.aux.Pair;
 
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -49,21 +48,29 @@ public class CircuitVar
     @SafeVarargs
     final public void addRelation(double constant, Pair<CircuitVar, Double>... terms)
     {
-        double[] coeffs = new double[system.relations.getCols() - 1];
+        int[] vars = new int[terms.length];
+        double[] coeffs = new double[terms.length];
 
-        for (Pair<CircuitVar, Double> term : terms)
-            coeffs[term.l.varIndex] = term.r;
+        for (int k = 0; k < vars.length; k++)
+        {
+            vars[k] = terms[k].l.varIndex;
+            coeffs[k] = terms[k].r;
+        }
 
-        system.addRelation(varIndex, coeffs, constant);
+        system.addRelation(varIndex, vars, coeffs, constant);
     }
 
     public void addRelation(List<Pair<CircuitVar, Double>> terms, double constant)
     {
-        double[] coeffs = new double[system.relations.getCols() - 1];
+        int[] vars = new int[terms.size()];
+        double[] coeffs = new double[terms.size()];
 
-        for (Pair<CircuitVar, Double> term : terms)
-            coeffs[term.l.varIndex] = term.r;
+        for (int k = 0; k < vars.length; k++)
+        {
+            vars[k] = terms.get(k).l.varIndex;
+            coeffs[k] = terms.get(k).r;
+        }
 
-        system.addRelation(varIndex, coeffs, constant);
+        system.addRelation(varIndex, vars, coeffs, constant);
     }
 }
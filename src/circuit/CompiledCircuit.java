@@ -0,0 +1,365 @@
+package circuit;
+
+import circuit.aux.BinaryInput;
+import circuit.aux.BinaryOutput;
+import circuit.aux.SparseLU;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+/**
+ * An immutable snapshot of a circuit, holding its topology as index arrays, its assembled system and a factorization
+ * of its own, together with the solution at the time it was compiled.
+ * Nothing in it changes after construction, so any number of threads can query it while the circuit is edited.
+ * Undetermined values are NaN.
+ * A snapshot can be written to a file and read back without assembling or factoring again. One that was read
+ * has no Node or Component objects, so it is only queried by index.
+ * Created by admin on 10/18/26.
+ */
+public final class CompiledCircuit
+{
+    public static final byte RESISTOR = 0, VOLTAGE_SOURCE = 1, CURRENT_SOURCE = 2, CAPACITOR = 3, INDUCTOR = 4,
+                             OTHER = 5;
+
+    static final int MAGIC = 0x43495243, VERSION = 1;
+
+    final Node[] nodes;                             // null if read from a file
+    final Component[] components;
+    final HashMap<CircuitElement, Integer> indices; // index of each node and component in the arrays above
+    final int[] starts, ends;                       // node index of the ends of each component
+    final byte[] types;                             // type of each component
+    final double[] values;                          // resistance, voltage, current, capacitance or inductance
+    final int[] potentialVars, currentVars, voltageVars; // variable of each node potential, component current and voltage
+    final double[] fixed;             // value of each bound variable, NaN for free ones
+    final Assembly assembly;
+    final SparseLU lu;                // factorization of assembly, not shared with the circuit
+    final boolean[] determined;       // columns of assembly the solution determines
+    final boolean solvable;
+    final double[] potentials, currents, voltages;
+
+    CompiledCircuit(Circuit circuit)
+    {
+        LinearSystem system = circuit.system;
+        int n = circuit.nodes.size(), m = circuit.components.size();
+
+        nodes = circuit.nodes.toArray(new Node[n]);
+        components = circuit.components.toArray(new Component[m]);
+        indices = new HashMap<>(2 * (n + m));
+        starts = new int[m];
+        ends = new int[m];
+        types = new byte[m];
+        values = new double[m];
+        potentialVars = new int[n];
+        currentVars = new int[m];
+        voltageVars = new int[m];
+
+        for (int i = 0; i < n; i++)
+        {
+            indices.put(nodes[i], i);
+            potentialVars[i] = nodes[i].potential.varIndex;
+        }
+        for (int i = 0; i < m; i++)
+        {
+            Component comp = components[i];
+            indices.put(comp, i);
+            starts[i] = indices.get(comp.start);
+            ends[i] = indices.get(comp.end);
+            currentVars[i] = comp.current.varIndex;
+            voltageVars[i] = comp.voltage.varIndex;
+            setType(i, comp);
+        }
+
+        // factor a copy, reusing the ordering of the circuit if the pattern is the same
+        assembly = new Assembly(system);
+        lu = new SparseLU(system.whole.lu);
+        if (!lu.isAnalyzed(assembly.matrix))
+            lu.analyze(assembly.matrix);
+        lu.factor(assembly.matrix);
+        determined = lu.determined();
+
+        fixed = new double[system.values.size()];
+        for (int j = 0; j < fixed.length; j++)
+            fixed[j] = assembly.columns[j] == -1 ? system.values.get(j) : Double.NaN;
+
+        double[] bindings = solve(assembly.rhs);
+        solvable = bindings != null;
+        potentials = gather(bindings, potentialVars);
+        currents = gather(bindings, currentVars);
+        voltages = gather(bindings, voltageVars);
+    }
+
+    // snapshot of base with other values of its bound variables and components, solved with the same factorization
+    private CompiledCircuit(CompiledCircuit base, double[] fixed, double[] values)
+    {
+        nodes = base.nodes;
+        components = base.components;
+        indices = base.indices;
+        starts = base.starts;
+        ends = base.ends;
+        types = base.types;
+        this.values = values;
+        potentialVars = base.potentialVars;
+        currentVars = base.currentVars;
+        voltageVars = base.voltageVars;
+        assembly = base.assembly;
+        lu = base.lu;
+        determined = base.determined;
+        this.fixed = fixed;
+
+        double[] b = assembly.rhs.clone();
+        for (int j = 0; j < fixed.length; j++)
+            if (fixed[j] != base.fixed[j] && assembly.columns[j] == -1)
+                assembly.shift(b, j, fixed[j] - base.fixed[j]);
+
+        double[] bindings = solve(b);
+        solvable = bindings != null;
+        potentials = gather(bindings, potentialVars);
+        currents = gather(bindings, currentVars);
+        voltages = gather(bindings, voltageVars);
+    }
+
+    // snapshot read from in, see write
+    private CompiledCircuit(BinaryInput in) throws IOException
+    {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION)
+            throw new IOException("Not a compiled circuit");
+
+        boolean factored = in.getInt() != 0;
+        int n = in.getInt(), m = in.getInt(), vars = in.getInt();
+
+        nodes = null;
+        components = null;
+        indices = new HashMap<>();
+        starts = new int[m];
+        ends = new int[m];
+        types = new byte[m];
+        values = new double[m];
+        potentialVars = new int[n];
+        currentVars = new int[m];
+        voltageVars = new int[m];
+        fixed = new double[vars];
+
+        in.getInts(starts, 0, m);
+        in.getInts(ends, 0, m);
+        for (int i = 0; i < m; i++)
+            types[i] = in.getByte();
+        in.getDoubles(values, 0, m);
+        in.getInts(potentialVars, 0, n);
+        in.getInts(currentVars, 0, m);
+        in.getInts(voltageVars, 0, m);
+        in.getDoubles(fixed, 0, vars);
+
+        assembly = Assembly.read(in);
+        if (factored)
+        {
+            lu = SparseLU.read(in, assembly.matrix);
+            determined = new boolean[assembly.matrix.getCols()];
+            in.getBooleans(determined, 0, determined.length);
+        }
+        else
+        {
+            lu = new SparseLU();
+            lu.analyze(assembly.matrix);
+            lu.factor(assembly.matrix);
+            determined = lu.determined();
+        }
+
+        solvable = in.getByte() != 0;
+        potentials = new double[n];
+        currents = new double[m];
+        voltages = new double[m];
+        in.getDoubles(potentials, 0, n);
+        in.getDoubles(currents, 0, m);
+        in.getDoubles(voltages, 0, m);
+    }
+
+    private void setType(int i, Component comp)
+    {
+        if (comp instanceof Resistor)
+        {
+            types[i] = RESISTOR;
+            values[i] = ((Resistor) comp).resistance;
+        }
+        else if (comp instanceof VoltageSource)
+        {
+            types[i] = VOLTAGE_SOURCE;
+            values[i] = ((VoltageSource) comp).value;
+        }
+        else if (comp instanceof CurrentSource)
+        {
+            types[i] = CURRENT_SOURCE;
+            values[i] = ((CurrentSource) comp).value;
+        }
+        else if (comp instanceof Capacitor)
+        {
+            types[i] = CAPACITOR;
+            values[i] = ((Capacitor) comp).capacitance;
+        }
+        else if (comp instanceof Inductor)
+        {
+            types[i] = INDUCTOR;
+            values[i] = ((Inductor) comp).inductance;
+        }
+        else
+        {
+            types[i] = OTHER;
+            values[i] = Double.NaN;
+        }
+    }
+
+    // value of every variable for the constant terms b, null if the system has no solution
+    private double[] solve(double[] b)
+    {
+        double[] x = assembly.consistent ? lu.solve(b) : null;
+        if (x == null)
+            return null;
+
+        double[] res = fixed.clone();
+        for (int j = 0; j < x.length; j++)
+            res[assembly.variables[j]] = determined[j] ? x[j] : Double.NaN;
+        return res;
+    }
+
+    // values of vars, where only the values that were set are known if there is no solution
+    private double[] gather(double[] bindings, int[] vars)
+    {
+        double[] res = new double[vars.length];
+        for (int i = 0; i < vars.length; i++)
+            res[i] = bindings == null ? fixed[vars[i]] : bindings[vars[i]];
+        return res;
+    }
+
+    // methods
+
+    public int getNodeCount() { return potentialVars.length; }
+
+    public int getComponentCount() { return currentVars.length; }
+
+    // node or component of index i, null if the snapshot was read from a file
+    public Node getNode(int i) { return nodes == null ? null : nodes[i]; }
+
+    public Component getComponent(int i) { return components == null ? null : components[i]; }
+
+    // index of a node or component of the snapshot, -1 if it was not in the circuit
+    public int indexOf(CircuitElement element)
+    {
+        Integer res = indices.get(element);
+        return res == null ? -1 : res;
+    }
+
+    public int getStart(int comp) { return starts[comp]; }
+
+    public int getEnd(int comp) { return ends[comp]; }
+
+    // one of RESISTOR, VOLTAGE_SOURCE, CURRENT_SOURCE, CAPACITOR, INDUCTOR and OTHER
+    public byte getType(int comp) { return types[comp]; }
+
+    // value of the component when it was compiled, NaN for OTHER
+    public double getValue(int comp) { return values[comp]; }
+
+    // whether the system had a solution, if not only the values that were set are known
+    public boolean isSolvable() { return solvable; }
+
+    public double getPotential(int node) { return potentials[node]; }
+
+    public double getCurrent(int comp) { return currents[comp]; }
+
+    public double getVoltage(int comp) { return voltages[comp]; }
+
+    public double getPotential(Node node)
+    {
+        return potentials[index(node)];
+    }
+
+    public double getCurrent(Component comp)
+    {
+        return currents[index(comp)];
+    }
+
+    public double getVoltage(Component comp)
+    {
+        return voltages[index(comp)];
+    }
+
+    public double getVoltageBetween(Node start, Node end)
+    {
+        return getPotential(end) - getPotential(start);
+    }
+
+    private int index(CircuitElement element)
+    {
+        int res = indexOf(element);
+        if (res == -1)
+            throw new IllegalArgumentException("Element not in compiled circuit");
+        return res;
+    }
+
+    // snapshot with the given sources set to other values, solved with the factorization of this one
+    // relations between fixed values only are not checked again
+    public CompiledCircuit withSources(int[] sources, double[] values)
+    {
+        double[] res = fixed.clone(), vals = this.values.clone();
+
+        for (int k = 0; k < sources.length; k++)
+        {
+            int comp = sources[k];
+            if (types[comp] == VOLTAGE_SOURCE)
+                res[voltageVars[comp]] = values[k];
+            else if (types[comp] == CURRENT_SOURCE)
+                res[currentVars[comp]] = values[k];
+            else
+                throw new IllegalArgumentException("Component " + comp + " is not a source");
+            vals[comp] = values[k];
+        }
+
+        return new CompiledCircuit(this, res, vals);
+    }
+
+    // write the snapshot to path, with its factorization unless it should be computed again on reading
+    public void write(Path path, boolean factorization) throws IOException
+    {
+        int n = potentialVars.length, m = currentVars.length;
+
+        try (BinaryOutput out = new BinaryOutput(path))
+        {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(factorization ? 1 : 0);
+            out.putInt(n);
+            out.putInt(m);
+            out.putInt(fixed.length);
+
+            out.putInts(starts, 0, m);
+            out.putInts(ends, 0, m);
+            for (int i = 0; i < m; i++)
+                out.putByte(types[i]);
+            out.putDoubles(values, 0, m);
+            out.putInts(potentialVars, 0, n);
+            out.putInts(currentVars, 0, m);
+            out.putInts(voltageVars, 0, m);
+            out.putDoubles(fixed, 0, fixed.length);
+
+            assembly.write(out);
+            if (factorization)
+            {
+                lu.write(out);
+                out.putBooleans(determined, 0, determined.length);
+            }
+
+            out.putByte(solvable ? (byte) 1 : 0);
+            out.putDoubles(potentials, 0, n);
+            out.putDoubles(currents, 0, m);
+            out.putDoubles(voltages, 0, m);
+        }
+    }
+
+    // read a snapshot written by write
+    public static CompiledCircuit read(Path path) throws IOException
+    {
+        try (BinaryInput in = new BinaryInput(path))
+        {
+            return new CompiledCircuit(in);
+        }
+    }
+}
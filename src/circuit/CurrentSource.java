@@ -18,6 +18,7 @@ public class CurrentSource extends Component
     {
         this.value = value;
         current.setValue(value);
+        circuit.markDirty(this);
     }
 
     protected void setCurrentRelations()
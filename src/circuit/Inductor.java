@@ -0,0 +1,36 @@
+package circuit;
+
+import circuit.aux.Pair;
+
+/**
+ * An inductor, across which there is no voltage in a steady state.
+ * Its voltage is bound to the rate of change of its current in transient analysis.
+ * Created by admin on 10/18/26.
+ */
+public class Inductor extends Component
+{
+    double inductance;
+
+    public Inductor(Circuit circuit, Node start, Node end, double value)
+    {
+        super(circuit, start, end);
+        inductance = value;
+    }
+
+    public double getInductance()
+    {
+        return inductance;
+    }
+
+    public void setInductance(double inductance)
+    {
+        // only the transient companion model depends on the value
+        this.inductance = inductance;
+    }
+
+    protected void setCurrentRelations()
+    {
+        // short circuit, the transient companion model adds the current term to this relation
+        current.addRelation(0, new Pair<>(voltage, 1.0));
+    }
+}
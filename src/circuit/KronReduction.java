@@ -0,0 +1,216 @@
+package circuit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Reduces resistive cells to macromodels over their ports, by eliminating the internal nodes through the Schur
+ * complement of their block of the conductance matrix.
+ * The models are cached by the structure of the cell, that is the resistances between its ports and internal nodes
+ * in the order given, so that a cell repeated many times is only reduced once.
+ * Created by admin on 10/18/26.
+ */
+public class KronReduction
+{
+    HashMap<Cell, Macromodel> cache = new HashMap<>();
+    int reductions; // cells actually reduced, the rest came from the cache
+
+    // structure of a cell, with the ends of each resistor as local node indices, ports first
+    static class Cell
+    {
+        final int ports, nodes;
+        final long[] ends;      // smaller end in the high half, larger end in the low half, sorted
+        final double[] values;  // conductance of each resistor in the order of ends
+        final int hash;
+
+        Cell(int ports, int nodes, long[] ends, double[] values)
+        {
+            this.ports = ports;
+            this.nodes = nodes;
+            this.ends = ends;
+            this.values = values;
+            hash = 31 * (31 * ports + nodes) + 31 * Arrays.hashCode(ends) + Arrays.hashCode(values);
+        }
+
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Cell))
+                return false;
+            Cell cell = (Cell) other;
+            return ports == cell.ports && nodes == cell.nodes && Arrays.equals(ends, cell.ends)
+                   && Arrays.equals(values, cell.values);
+        }
+
+        public int hashCode() { return hash; }
+    }
+
+    // methods
+
+    public int getCacheSize() { return cache.size(); }
+
+    public int getReductions() { return reductions; }
+
+    public void clearCache() { cache.clear(); }
+
+    // model of the cell made of the internal nodes, every resistor they are connected to and the given ports
+    public Macromodel reduce(Collection<Node> internal, List<Node> ports)
+    {
+        Cell cell = cell(internal, ports);
+        Macromodel res = cache.get(cell);
+
+        if (res == null)
+        {
+            res = reduce(cell);
+            cache.put(cell, res);
+            reductions++;
+        }
+        return res;
+    }
+
+    // replace the cell by its model in its circuit, removing the internal nodes along with their components
+    // returns the resistors of the model
+    public List<Resistor> replace(Collection<Node> internal, List<Node> ports)
+    {
+        Macromodel model = reduce(internal, ports);
+        Circuit circuit = ports.get(0).getCircuit();
+
+        circuit.begin();
+        try
+        {
+            for (Node node : internal)
+                circuit.removeNode(node);
+            return model.instantiate(circuit, ports);
+        }
+        finally
+        {
+            circuit.commit();
+        }
+    }
+
+    private static Cell cell(Collection<Node> internal, List<Node> ports)
+    {
+        HashMap<Node, Integer> local = new HashMap<>();
+        int p = ports.size();
+
+        for (Node node : ports)
+            if (local.put(node, local.size()) != null)
+                throw new IllegalArgumentException("Repeated port");
+        for (Node node : internal)
+        {
+            if (local.put(node, local.size()) != null)
+                throw new IllegalArgumentException("Internal node is also a port or repeated");
+            if (node.circuit.system.values.get(node.potential.varIndex) != null)
+                throw new IllegalArgumentException("Internal node with a fixed potential");
+        }
+
+        // every component of an internal node has to be a resistor within the cell
+        LinkedHashSet<Component> components = new LinkedHashSet<>();
+        for (Node node : internal)
+            for (Component comp : node.components)
+            {
+                if (!(comp instanceof Resistor))
+                    throw new IllegalArgumentException("Internal node connected to a component other than a resistor");
+                if (!local.containsKey(comp.otherNode(node)))
+                    throw new IllegalArgumentException("Internal node connected outside the cell");
+                components.add(comp);
+            }
+
+        // resistors sorted by their ends, so that the order they were added in does not matter
+        long[] ends = new long[components.size()];
+        int k = 0;
+        for (Component comp : components)
+        {
+            long a = local.get(comp.start), b = local.get(comp.end);
+            ends[k++] = Math.min(a, b) << 32 | Math.max(a, b);
+        }
+
+        Integer[] order = new Integer[ends.length];
+        for (k = 0; k < order.length; k++)
+            order[k] = k;
+        Resistor[] resistors = components.toArray(new Resistor[0]);
+        Arrays.sort(order, (x, y) -> ends[x] != ends[y] ? Long.compare(ends[x], ends[y])
+                                                        : Double.compare(resistors[x].resistance,
+                                                                         resistors[y].resistance));
+
+        long[] sorted = new long[ends.length];
+        double[] values = new double[ends.length];
+        for (k = 0; k < order.length; k++)
+        {
+            sorted[k] = ends[order[k]];
+            values[k] = 1 / resistors[order[k]].resistance;
+        }
+
+        return new Cell(p, local.size(), sorted, values);
+    }
+
+    // Y = Gpp - Gpi Gii^-1 Gip, with Gii factored by dense Cholesky
+    private static Macromodel reduce(Cell cell)
+    {
+        int p = cell.ports, n = cell.nodes - p;
+        double[] g = new double[cell.nodes * cell.nodes];
+
+        for (int k = 0; k < cell.ends.length; k++)
+        {
+            int a = (int) (cell.ends[k] >>> 32), b = (int) cell.ends[k];
+            double value = cell.values[k];
+            g[a * cell.nodes + a] += value;
+            g[b * cell.nodes + b] += value;
+            g[a * cell.nodes + b] -= value;
+            g[b * cell.nodes + a] -= value;
+        }
+
+        // Cholesky factor of the internal block, in place
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j <= i; j++)
+            {
+                double value = g[(p + i) * cell.nodes + p + j];
+                for (int k = 0; k < j; k++)
+                    value -= l[i * n + k] * l[j * n + k];
+                if (i == j)
+                {
+                    if (!(value > 0))
+                        throw new IllegalArgumentException("Internal nodes not connected to any port");
+                    l[i * n + i] = Math.sqrt(value);
+                }
+                else
+                    l[i * n + j] = value / l[j * n + j];
+            }
+
+        // solve Gii x = Gip column by column, and subtract Gpi x from Gpp
+        double[] y = new double[p * p], x = new double[n];
+        for (int i = 0; i < p; i++)
+            System.arraycopy(g, i * cell.nodes, y, i * p, p);
+
+        for (int c = 0; c < p; c++)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                double value = g[(p + i) * cell.nodes + c];
+                for (int k = 0; k < i; k++)
+                    value -= l[i * n + k] * x[k];
+                x[i] = value / l[i * n + i];
+            }
+            for (int i = n - 1; i >= 0; i--)
+            {
+                double value = x[i];
+                for (int k = i + 1; k < n; k++)
+                    value -= l[k * n + i] * x[k];
+                x[i] = value / l[i * n + i];
+            }
+
+            for (int r = 0; r < p; r++)
+            {
+                double value = 0;
+                for (int i = 0; i < n; i++)
+                    value += g[r * cell.nodes + p + i] * x[i];
+                y[r * p + c] -= value;
+            }
+        }
+
+        return new Macromodel(y, p);
+    }
+}
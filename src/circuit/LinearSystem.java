@@ -1,30 +1,53 @@
 package circuit;
 
-import circuit.aux.Matrix;
+import circuit.aux.Parallel;
+import circuit.aux.SparseMatrix;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
  * A linear system of equations, containing linear relations of variables represented as indices in a list of bindings.
+ * Variables connected by relations are kept in blocks, which are solved independently and in parallel, and only
+ * the blocks whose relations or values changed are solved again. Blocks merge when a relation connects them, but do
+ * not split when one is removed. Removed variables leave their block.
  * Created by admin on 7/4/16.
  */
 class LinearSystem
 {
-    ArrayList<Double> values,   // assigned values
-                      bindings; // result of evaluation
-    Matrix relations,   // contains all linear relations
-           relIndices;  // maps each index to the start and end of the rows in relations that correspond to that index
+    ArrayList<Double> values,    // assigned values
+                      bindings,  // result of evaluation
+                      constants; // constant term of each relation
+    SparseMatrix relations;      // contains all linear relations, one row per relation and one column per variable
+    ArrayList<List<Integer>> relIndices; // maps each index to the rows in relations that correspond to that index
+    ArrayList<Integer> relCounts;        // number of rows of each index in use, the rest are kept empty for reuse
+    ArrayDeque<Integer> freeRows;        // rows of removed variables, to be reused
+    ArrayList<Block> blockOf;            // block of each variable
+    int[] positions;                     // position of each variable in its block
+    LinkedHashSet<Block> blocks;
+    Block whole;                         // the whole system, for analyses that need every variable at once
+    int updateLimit = 16;                // rank one updates applied to lu before refactoring, 0 to always refactor
+    boolean mixed;                       // factor the blocks in single precision and refine their solutions
+    boolean solved;                      // whether bindings hold the solution of the current relations and values
+    NodalSolver nodal;                   // tried before the factorization if set
+    NetworkReduction reduction;          // tried next, if set
 
     LinearSystem()
     {
         values = new ArrayList<>();
         bindings = new ArrayList<>();
-        relations = new Matrix();
-        relIndices = new Matrix(-1);
-        relations.resize(0, 1); // add column for constant terms
-        relIndices.resize(2, 0); // two rows representing start and end
+        constants = new ArrayList<>();
+        relations = new SparseMatrix();
+        relIndices = new ArrayList<>();
+        relCounts = new ArrayList<>();
+        freeRows = new ArrayDeque<>();
+        blockOf = new ArrayList<>();
+        positions = new int[16];
+        blocks = new LinkedHashSet<>();
+        whole = new Block();
     }
 
     // methods
@@ -32,19 +55,34 @@ class LinearSystem
     // create new slot for a variable, return its index
     protected int newVariable()
     {
+        int var = values.size();
+
         values.add(null);
         bindings.add(null);
 
-        relations.createColumn(0); // add variable
-        relIndices.resize(0, 1);
+        relations.resize(0, 1); // add variable
+        relIndices.add(new ArrayList<>(1));
+        relCounts.add(0);
+
+        // in a block of its own until a relation connects it to others
+        Block block = new Block(var);
+        blockOf.add(block);
+        blocks.add(block);
+        if (var == positions.length)
+            positions = Arrays.copyOf(positions, 2 * var);
+        positions[var] = 0;
+        invalidate(var);
 
-        return values.size() - 1;
+        return var;
     }
 
     // get value of variable with index varIndex
     protected Double getValue(int varIndex)
     {
-        if (!solveSystem(varIndex))
+        if (!solved)
+            solveSystem();
+        Block block = blockOf.get(varIndex);
+        if (block == null || !block.solvable)
             return values.get(varIndex);
         return bindings.get(varIndex);
     }
@@ -53,203 +91,181 @@ class LinearSystem
     protected void setValue(int varIndex, Double value)
     {
         values.set(varIndex, value);
-        bindings.set(varIndex, value);
+        invalidate(varIndex);
     }
 
-    protected void removeVariable(int varIndex)
+    // discard every binding, so that the system is solved again on the next read
+    protected void invalidate()
     {
-        // TODO set things to null, remove bindings and neighborhoods
-
-        // remove relations
-        resetRelations(varIndex);
+        solved = false;
+        for (Block block : blocks)
+            block.solved = false;
     }
 
-    // arranges relations in a list, sorted by support
-    protected List<double[]> getRelations(int varIndex)
+    // discard the bindings of the block of varIndex only
+    protected void invalidate(int varIndex)
     {
-        List<double[]> res = new ArrayList<>();
-
-        for (int i = 0; i < relations.getRows(); i++)
-            if (relations.get(i, varIndex) != 0)
-                res.add(Arrays.copyOf(relations.getRow(i), relations.getCols()));
-
-        res.sort((row1, row2) -> Matrix.support(row1).size() - Matrix.support(row2).size());
-
-        return res;
+        solved = false;
+        if (blockOf.get(varIndex) != null)
+            blockOf.get(varIndex).solved = false;
     }
 
-    protected void addRelation(int varIndex, double[] coeffs, double constant)
+    // merge the blocks of vars into the largest of them, returns the merged block
+    private Block join(int[] vars)
     {
-        double[] bounds = relIndices.getColumn(varIndex);
-        int start = (int) bounds[0], end = (int) bounds[1];
+        Block res = blockOf.get(vars[0]);
 
-        // check the varIndex column of relIndices
-        if (start == -1) // if no relation is defined for varIndex
-        {
-            // add relation to the bottom of relations
-            relations.adjoinRow(-1, coeffs);
-            relations.set(-1, -1, constant);
+        for (int var : vars)
+            if (blockOf.get(var).size > res.size)
+                res = blockOf.get(var);
 
-            // set indices
-            relIndices.set(0, varIndex, relations.getRows() - 1);
-            relIndices.set(1, varIndex, relations.getRows() - 1);
-        }
-        else
+        for (int var : vars)
         {
-            // add relation to end + 1
-            relations.adjoinRow(end + 1, coeffs);
-            relations.set(end + 1, -1, constant);
+            Block block = blockOf.get(var);
+            if (block == res)
+                continue;
 
-            // update end
-            relIndices.set(1, varIndex, end + 1);
+            for (int j = 0; j < block.size; j++)
+            {
+                positions[block.vars[j]] = res.size;
+                blockOf.set(block.vars[j], res);
+                res.add(block.vars[j]);
+            }
+            blocks.remove(block);
         }
-    }
 
-    // remove relations defined by varIndex
-    protected void resetRelations(int varIndex)
-    {
-        double[] bounds = relIndices.getColumn(varIndex);
-        int start = (int) bounds[0], end = (int) bounds[1];
-
-        // remove relations corresponding to varIndex
-        if (start != -1)
-            for (int i = start; i <= end; i++)
-                relations.deleteRow(start); // the next row gets pushed up
-
-        // reset relation indices
-        relIndices.set(0, varIndex, -1);
-        relIndices.set(1, varIndex, -1);
-
-        // shift the index of every relation after varIndex's up, including end
-        for (int j = 0; j < relIndices.getCols(); j++)
-            for (int i = 0; i <= 1; i++)
-                if (relIndices.get(i, j) > start)
-                    relIndices.set(i, j, relIndices.get(i, j) + start - end);
-
-        // reset bindings
-        bindings.set(varIndex, values.get(varIndex));
+        return res;
     }
 
-    // solves linear system and returns true if system is solvable, false otherwise
-    // the goal is to get a binding for varIndex, not solve the entire system
-    private boolean solveSystem(int varIndex)
+    protected void removeVariable(int varIndex)
     {
-        if (bindings.get(varIndex) != null)
-            return true;
+        // TODO set things to null, remove bindings and neighborhoods
 
-        Matrix rels = new Matrix();
-        ArrayList<Integer> visited = new ArrayList<>();
-        List<Integer> support;
-        int index;
+        // remove relations, giving up their rows
+        resetRelations(varIndex);
+        freeRows.addAll(relIndices.get(varIndex));
+        relIndices.get(varIndex).clear();
+
+        // leave the block, moving its last variable to the position given up
+        Block block = blockOf.get(varIndex);
+        if (block == null)
+            return;
+
+        int last = block.vars[--block.size];
+        block.vars[positions[varIndex]] = last;
+        positions[last] = positions[varIndex];
+        blockOf.set(varIndex, null);
+        if (block.size == 0)
+            blocks.remove(block);
+    }
 
-        rels.resize(0, relations.getCols());
-        visited.add(varIndex);
+    // add relation sum(coeffs[k] * vars[k]) = constant, defined by varIndex
+    protected void addRelation(int varIndex, int[] vars, double[] coeffs, double constant)
+    {
+        List<Integer> rows = relIndices.get(varIndex);
+        int count = relCounts.get(varIndex), row;
 
-        // load rels
-        for (int i = 0; i < visited.size(); i++)
+        // reuse a row of varIndex first, so that setting the same relations again keeps the pattern
+        if (count < rows.size())
+            row = rows.get(count);
+        else
         {
-            index = visited.get(i);
-
-            // go through the relations defined on varIndex
-            for (double[] relation : getRelations(index))
+            // otherwise reuse an empty row if there is one, or add relation to the bottom of relations
+            if (freeRows.isEmpty())
             {
-                // first move all the bound variables to the constant coefficient (don't delete columns, just subtract)
-                for (int j = 0; j < relation.length - 1; j++)
-                {
-                    if (bindings.get(j) != null)
-                    {
-                        relation[relation.length - 1] -= bindings.get(j) * relation[j];
-                        relation[j] = 0;
-                    }
-                }
-
-                support = Matrix.support(relation);
-
-                // check if it defines only one variable
-                if (support.size() == 1 || (support.size() == 2 && support.contains(relation.length - 1))) // including the constant term
-                {
-                    // bind variable
-                    visited.remove(support.get(0));
-                    bindings.set(support.get(0), relation[relation.length - 1] / relation[support.get(0)]);
-                }
-                else
-                {
-                    // add the relation to the matrix every other variable in the relation to the queue
-                    rels.adjoinRow(-1, relation);
-                    for (int ind : support)
-                        if (ind != index && ind != relation.length - 1 && !visited.contains(ind))
-                            visited.add(ind);
-                }
+                row = relations.getRows();
+                relations.createRow(-1);
+                constants.add(0.0);
             }
+            else
+                row = freeRows.poll();
+            rows.add(row);
         }
 
-        // reduce rels to reduced row echelon form
-        for (int i = 0; i < rels.getRows(); i++)
-        {
-            // if row is empty, delete it and jump to the beginning
-            if (Matrix.support(rels.getRow(i)).isEmpty())
-            {
-                rels.deleteRow(i);
-                i--;
-                continue;
-            }
-
-            // set pivot index
-            index = Matrix.support(rels.getRow(i)).get(0);
+        constants.set(row, constant);
+        for (int k = 0; k < vars.length; k++)
+            relations.set(row, vars[k], coeffs[k]);
 
-            // if the constant is nonzero and no other coefficient is, the system is inconsistent
-            if (index == rels.getCols() - 1)
-                return false;
+        relCounts.set(varIndex, count + 1);
 
-            // multiply row so that the coefficient of index is 1
-            rels.multiplyRow(i, 1 / rels.get(i, index));
+        // the relation has to be in the block of every variable it connects
+        int[] connected = Arrays.copyOf(vars, vars.length + 1);
+        connected[vars.length] = varIndex;
+        join(connected);
+        invalidate(varIndex);
+    }
 
-            // subtract row from next rows so their index column is 0
-            for (int j = i + 1; j < rels.getRows(); j++)
-                rels.addRow(j, Matrix.multiply(rels.getRow(i), - rels.get(j, index)));
+    // remove relations defined by varIndex
+    protected void resetRelations(int varIndex)
+    {
+        // clear relations corresponding to varIndex, keeping their rows
+        for (int row : relIndices.get(varIndex))
+        {
+            relations.multiplyRow(row, 0);
+            constants.set(row, 0.0);
         }
 
-        // make it so every row has at most one nonzero cell other than the constant
-        for (int i = rels.getRows() - 1; i >= 0; i--)
+        relCounts.set(varIndex, 0);
+        invalidate(varIndex);
+    }
+
+    // solves every block whose relations or values changed, in parallel, binding every variable they determine
+    // the bindings are kept until the relations or values change
+    private void solveSystem()
+    {
+        solved = true;
+
+        // the nodal solver and the reduction bind every variable at once, so that the blocks have to be solved
+        // again without them
+        if (nodal != null && nodal.solve(this) || reduction != null && reduction.solve(this))
         {
-            // if row is empty, delete it and jump to the beginning
-            if (Matrix.support(rels.getRow(i)).isEmpty())
+            for (Block block : blocks)
             {
-                rels.deleteRow(i);
-                i--;
-                continue;
+                block.solved = false;
+                block.solvable = true;
             }
-
-            // set pivot index
-            index = Matrix.support(rels.getRow(i)).get(0);
-
-            // if the constant is nonzero and no other coefficient is, the system is inconsistent
-            if (index == rels.getCols() - 1)
-                return false;
-
-            // remove index's coefficient from every previous row
-            for (int j = 0; j < i; j++)
-                rels.addRow(j, Matrix.multiply(rels.getRow(i), - rels.get(j, index)));
+            return;
         }
 
-        // now that all relations contain at most one variable, bind them to constants
-        for (int i = 0; i < rels.getRows(); i++)
-        {
-            // if row is empty, continue
-            if (Matrix.support(rels.getRow(i)).isEmpty())
-                continue;
+        ArrayList<Block> pending = new ArrayList<>();
+        for (Block block : blocks)
+            if (!block.solved)
+                pending.add(block);
 
-            // set pivot index
-            index = Matrix.support(rels.getRow(i)).get(0);
+        Parallel.forEach(0, pending.size(), k -> {
+            Block block = pending.get(k);
+            block.solvable = block.solve(this);
+            block.solved = true;
+        });
+    }
 
-            // if the constant is nonzero and no other coefficient is, the system is inconsistent
-            if (index == rels.getCols() - 1)
+    // solve the system if needed, returns whether every block has a solution
+    protected boolean solveAll()
+    {
+        if (!solved)
+            solveSystem();
+        for (Block block : blocks)
+            if (!block.solvable)
                 return false;
+        return true;
+    }
 
-            // assign value to index
-            bindings.set(index, rels.get(i, -1));
-        }
+    // start from the assigned values, leaving undetermined variables unbound
+    protected void resetBindings()
+    {
+        for (int j = 0; j < values.size(); j++)
+            bindings.set(j, values.get(j));
+    }
 
-        return bindings.get(varIndex) != null;
+    protected void bind(int varIndex, double value)
+    {
+        bindings.set(varIndex, value);
+    }
+
+    // assemble the whole system and bring the factorization of whole up to date with it, null if a relation
+    // between bound variables fails
+    Assembly assemble()
+    {
+        return whole.assemble(this);
     }
 }
@@ -0,0 +1,61 @@
+package circuit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The conductance matrix seen at the ports of a resistive cell once its internal nodes are eliminated.
+ * Its rows sum to zero and its off diagonal entries are not positive, so it is stamped into a circuit as one resistor
+ * between every pair of ports that are connected through the cell.
+ * Models are immutable, and one model serves every instance of the same cell.
+ * Created by admin on 10/18/26.
+ */
+public final class Macromodel
+{
+    static final double NEGLIGIBLE = 1e-12; // conductances below this part of the diagonal are left out
+
+    final double[] conductance; // ports x ports, by rows
+    final int ports;
+
+    Macromodel(double[] conductance, int ports)
+    {
+        this.conductance = conductance;
+        this.ports = ports;
+    }
+
+    // methods
+
+    public int getPorts() { return ports; }
+
+    // entry of the port conductance matrix, the current into port i for a unit potential at port j
+    public double getConductance(int i, int j)
+    {
+        return conductance[i * ports + j];
+    }
+
+    // resistance of the equivalent resistor between ports i and j, infinite if they are not connected
+    public double getResistance(int i, int j)
+    {
+        return connected(i, j) ? -1 / conductance[i * ports + j] : Double.POSITIVE_INFINITY;
+    }
+
+    private boolean connected(int i, int j)
+    {
+        double g = -conductance[i * ports + j];
+        return i != j && g > NEGLIGIBLE * Math.max(conductance[i * ports + i], conductance[j * ports + j]);
+    }
+
+    // add the equivalent resistors of the model between the given nodes, in the order of the ports
+    public List<Resistor> instantiate(Circuit circuit, List<Node> nodes)
+    {
+        if (nodes.size() != ports)
+            throw new IllegalArgumentException("Expected " + ports + " ports, got " + nodes.size());
+
+        ArrayList<Resistor> res = new ArrayList<>();
+        for (int i = 0; i < ports; i++)
+            for (int j = i + 1; j < ports; j++)
+                if (connected(i, j) && nodes.get(i) != nodes.get(j))
+                    res.add(new Resistor(circuit, nodes.get(i), nodes.get(j), getResistance(i, j)));
+        return res;
+    }
+}
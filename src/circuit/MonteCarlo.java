@@ -0,0 +1,187 @@
+package circuit;
+
+import circuit.aux.Parallel;
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+import circuit.aux.Statistics;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * A Monte Carlo tolerance analysis, drawing the resistances of a circuit at random around their values
+ * and collecting statistics of probed variables over the trials.
+ * Trials are run in chunks on the common fork join pool, each with its own copy of the factorization
+ * and a random stream split from the seed, so that the results only depend on the seed.
+ * Created by admin on 10/18/26.
+ */
+public class MonteCarlo
+{
+    static final int CHUNK = 1024; // trials run by each task
+
+    public enum Distribution
+    {
+        UNIFORM,  // uniform within the tolerance
+        GAUSSIAN  // normal with the tolerance as three standard deviations
+    }
+
+    ArrayList<Resistor> resistors;
+    ArrayList<Double> tolerances;
+    ArrayList<Distribution> distributions;
+    ArrayList<CircuitVar> probes;
+    ArrayList<Statistics> templates; // empty statistics of each probe, holding its histogram range
+
+    public MonteCarlo()
+    {
+        resistors = new ArrayList<>();
+        tolerances = new ArrayList<>();
+        distributions = new ArrayList<>();
+        probes = new ArrayList<>();
+        templates = new ArrayList<>();
+    }
+
+    // methods
+
+    // vary the resistance of resistor by the fraction tolerance of its value
+    public void addTolerance(Resistor resistor, double tolerance, Distribution distribution)
+    {
+        if (tolerance < 0)
+            throw new IllegalArgumentException("Negative tolerance");
+
+        resistors.add(resistor);
+        tolerances.add(tolerance);
+        distributions.add(distribution);
+    }
+
+    // each probe returns its index in the results of the analysis
+
+    public int probePotential(Node node)
+    {
+        return probe(node.potential);
+    }
+
+    public int probeCurrent(Component comp)
+    {
+        return probe(comp.current);
+    }
+
+    public int probeVoltage(Component comp)
+    {
+        return probe(comp.voltage);
+    }
+
+    private int probe(CircuitVar var)
+    {
+        probes.add(var);
+        templates.add(new Statistics());
+        return probes.size() - 1;
+    }
+
+    // keep a histogram of the given probe over [low, high)
+    public void setHistogram(int probe, double low, double high, int bins)
+    {
+        templates.set(probe, new Statistics(low, high, bins));
+    }
+
+    public int getProbes() { return probes.size(); }
+
+    // statistics of each probe over the given number of trials
+    Statistics[] run(Circuit circuit, int trials, long seed)
+    {
+        LinearSystem system = circuit.system;
+        int p = resistors.size(), chunks = (trials + CHUNK - 1) / CHUNK;
+        Statistics[] res = new Statistics[probes.size()];
+
+        for (int k = 0; k < res.length; k++)
+            res[k] = new Statistics(templates.get(k));
+
+        for (Resistor resistor : resistors)
+            if (resistor.getCircuit() != circuit)
+                throw new IllegalArgumentException("Resistor not in circuit");
+        for (CircuitVar var : probes)
+            if (var.parent.getCircuit() != circuit)
+                throw new IllegalArgumentException("Probe not in circuit");
+
+        Assembly assembly = system.assemble();
+        if (assembly == null)
+        {
+            for (Statistics stats : res)
+                for (int t = 0; t < trials; t++)
+                    stats.add(Double.NaN);
+            return res;
+        }
+
+        // entry of the matrix holding each resistance
+        int[] rows = new int[p], cols = new int[p];
+        for (int q = 0; q < p; q++)
+        {
+            int var = resistors.get(q).current.varIndex;
+            rows[q] = assembly.row(system, var);
+            cols[q] = assembly.columns[var];
+            if (rows[q] == -1 || cols[q] == -1)
+                throw new IllegalArgumentException("Resistor current is fixed");
+        }
+
+        // split the streams in order, so that each chunk gets the same stream on every run
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++)
+            streams[c] = random.split();
+
+        Statistics[][] partial = new Statistics[chunks][];
+
+        Parallel.forEach(0, chunks, c -> {
+            SplittableRandom stream = streams[c];
+            SparseMatrix a = new SparseMatrix(assembly.matrix);
+            SparseLU lu = new SparseLU(system.whole.lu);
+            Statistics[] stats = new Statistics[res.length];
+            double[] x;
+            boolean[] determined;
+
+            for (int k = 0; k < stats.length; k++)
+                stats[k] = new Statistics(templates.get(k));
+
+            for (int t = c * CHUNK; t < Math.min(trials, (c + 1) * CHUNK); t++)
+            {
+                for (int q = 0; q < p; q++)
+                    a.set(rows[q], cols[q], draw(stream, resistors.get(q).resistance, tolerances.get(q), distributions.get(q)));
+
+                if (!lu.isAnalyzed(a))
+                    lu.analyze(a);
+                lu.factor(a);
+                x = lu.solve(assembly.rhs);
+                determined = x == null ? null : lu.determined();
+
+                for (int k = 0; k < stats.length; k++)
+                {
+                    int var = probes.get(k).varIndex, col = assembly.columns[var];
+                    if (x == null)
+                        stats[k].add(Double.NaN);
+                    else if (col == -1)
+                        stats[k].add(system.values.get(var));
+                    else
+                        stats[k].add(determined[col] ? x[col] : Double.NaN);
+                }
+            }
+
+            partial[c] = stats;
+        });
+
+        // merge in order, so that rounding does not depend on scheduling
+        for (Statistics[] stats : partial)
+            for (int k = 0; k < res.length; k++)
+                res[k].merge(stats[k]);
+
+        return res;
+    }
+
+    private static double draw(SplittableRandom stream, double value, double tolerance, Distribution distribution)
+    {
+        if (distribution == Distribution.UNIFORM)
+            return value * (1 + tolerance * (2 * stream.nextDouble() - 1));
+
+        // Box-Muller transform, as the stream has no gaussian of its own
+        double u = 1 - stream.nextDouble(), v = stream.nextDouble();
+        return value * (1 + tolerance / 3 * Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v));
+    }
+}
@@ -0,0 +1,424 @@
+package circuit;
+
+import java.util.Arrays;
+
+/**
+ * A smoothed aggregation multigrid hierarchy for the nodal system of a resistor network.
+ * The nodes of each level are grouped along strong connections of the conductance graph into the nodes of the next,
+ * with a prolongation smoothed by one damped Jacobi step, until the system is small enough to factor densely.
+ * A V-cycle uses one forward Gauss-Seidel sweep before the coarse correction and one backward sweep after it, so
+ * that it is symmetric and can precondition conjugate gradients as well as iterate on its own.
+ * The hierarchy only depends on the conductances, and is kept while only the sources change.
+ * Created by admin on 10/18/26.
+ */
+class Multigrid
+{
+    static final int COARSEST = 400;       // nodes below which the level is factored densely
+    static final int DENSE = 2 * COARSEST; // most nodes of the coarsest level, the solve falls back to factoring past it
+    static final double STRENGTH = 0.08;   // smallest strong conductance relative to the diagonals of its ends
+    static final double DAMPING = 4.0 / 3; // of the prolongation smoother, divided by the spectral radius
+    static final int POWER_STEPS = 15;     // of the spectral radius estimate
+
+    int levels;
+    CsrMatrix[] matrices;      // system of each level
+    CsrMatrix[] prolongations; // from each level to the one above it
+    double[][] diagonals;
+    double[][] xs, bs, rs; // work vectors of each level
+    double[] cholesky;    // dense factor of the coarsest system, by rows
+    boolean positive;     // whether the coarsest system was small enough and could be factored
+
+    // compressed rows without gaps, so that the loops of a cycle run over flat arrays, unlike SparseMatrix
+    static class CsrMatrix
+    {
+        int rows, cols;
+        int[] start, index;
+        double[] value;
+
+        CsrMatrix(int rows, int cols, int nonzeros)
+        {
+            this.rows = rows;
+            this.cols = cols;
+            start = new int[rows + 1];
+            index = new int[nonzeros];
+            value = new double[nonzeros];
+        }
+
+        CsrMatrix transpose()
+        {
+            CsrMatrix res = new CsrMatrix(cols, rows, start[rows]);
+
+            for (int q = 0; q < start[rows]; q++)
+                res.start[index[q] + 1]++;
+            for (int j = 0; j < cols; j++)
+                res.start[j + 1] += res.start[j];
+
+            int[] next = Arrays.copyOf(res.start, cols);
+            for (int i = 0; i < rows; i++)
+                for (int q = start[i]; q < start[i + 1]; q++)
+                {
+                    int t = next[index[q]]++;
+                    res.index[t] = i;
+                    res.value[t] = value[q];
+                }
+            return res;
+        }
+
+        // this times other, accumulating each row in a dense work row
+        CsrMatrix multiply(CsrMatrix other)
+        {
+            int[] marker = new int[other.cols];
+            double[] row = new double[other.cols];
+            int[] start = new int[rows + 1], index = new int[Math.max(16, this.start[rows])];
+            double[] value = new double[index.length];
+            int len = 0;
+
+            Arrays.fill(marker, -1);
+            for (int i = 0; i < rows; i++)
+            {
+                int first = len;
+                for (int q = this.start[i]; q < this.start[i + 1]; q++)
+                {
+                    int k = this.index[q];
+                    double a = this.value[q];
+                    for (int t = other.start[k]; t < other.start[k + 1]; t++)
+                    {
+                        int j = other.index[t];
+                        if (marker[j] < first)
+                        {
+                            if (len == index.length)
+                            {
+                                index = Arrays.copyOf(index, 2 * len);
+                                value = Arrays.copyOf(value, 2 * len);
+                            }
+                            marker[j] = len;
+                            index[len++] = j;
+                            row[j] = 0;
+                        }
+                        row[j] += a * other.value[t];
+                    }
+                }
+                for (int q = first; q < len; q++)
+                    value[q] = row[index[q]];
+                start[i + 1] = len;
+            }
+
+            CsrMatrix res = new CsrMatrix(rows, other.cols, 0);
+            res.start = start;
+            res.index = index;
+            res.value = value;
+            return res;
+        }
+    }
+
+    // hierarchy of the system with the given diagonal and off diagonal conductances between pairs of nodes
+    Multigrid(int n, int[] edgeA, int[] edgeB, double[] conductance, double[] diagonal)
+    {
+        CsrMatrix a = new CsrMatrix(n, n, 2 * edgeA.length + n);
+
+        for (int e = 0; e < edgeA.length; e++)
+        {
+            a.start[edgeA[e] + 1]++;
+            a.start[edgeB[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++)
+            a.start[i + 1] += a.start[i] + 1;
+
+        int[] next = Arrays.copyOf(a.start, n);
+        for (int i = 0; i < n; i++)
+        {
+            a.index[next[i]] = i;
+            a.value[next[i]++] = diagonal[i];
+        }
+        for (int e = 0; e < edgeA.length; e++)
+        {
+            int i = edgeA[e], j = edgeB[e];
+            a.index[next[i]] = j;
+            a.value[next[i]++] = -conductance[e];
+            a.index[next[j]] = i;
+            a.value[next[j]++] = -conductance[e];
+        }
+
+        matrices = new CsrMatrix[]{a};
+        prolongations = new CsrMatrix[0];
+        while (a.rows > COARSEST)
+        {
+            CsrMatrix p = prolongation(a, diagonal(a));
+            if (p.cols > 0.9 * a.rows) // too little coarsening to be worth a level
+                break;
+
+            a = p.transpose().multiply(a.multiply(p));
+            matrices = Arrays.copyOf(matrices, matrices.length + 1);
+            matrices[matrices.length - 1] = a;
+            prolongations = Arrays.copyOf(prolongations, prolongations.length + 1);
+            prolongations[prolongations.length - 1] = p;
+        }
+
+        levels = matrices.length;
+        diagonals = new double[levels][];
+        xs = new double[levels][];
+        bs = new double[levels][];
+        rs = new double[levels][];
+        for (int l = 0; l < levels; l++)
+        {
+            diagonals[l] = diagonal(matrices[l]);
+            xs[l] = new double[matrices[l].rows];
+            bs[l] = new double[matrices[l].rows];
+            rs[l] = new double[matrices[l].rows];
+        }
+
+        positive = a.rows <= DENSE && factorCoarsest();
+    }
+
+    private static double[] diagonal(CsrMatrix a)
+    {
+        double[] res = new double[a.rows];
+        for (int i = 0; i < a.rows; i++)
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                if (a.index[q] == i)
+                    res[i] += a.value[q];
+        return res;
+    }
+
+    // smoothed prolongation from the aggregates of the strongly connected nodes of a
+    private static CsrMatrix prolongation(CsrMatrix a, double[] d)
+    {
+        int n = a.rows, count = 0;
+        int[] aggregate = new int[n];
+        Arrays.fill(aggregate, -1);
+
+        // aggregates around nodes none of whose strong neighbours are taken yet
+        for (int i = 0; i < n; i++)
+        {
+            if (aggregate[i] != -1)
+                continue;
+            boolean free = true;
+            for (int q = a.start[i]; q < a.start[i + 1] && free; q++)
+                if (strong(a, d, i, q) && aggregate[a.index[q]] != -1)
+                    free = false;
+            if (!free)
+                continue;
+
+            aggregate[i] = count;
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                if (strong(a, d, i, q))
+                    aggregate[a.index[q]] = count;
+            count++;
+        }
+
+        // the rest join an aggregate of the first pass they are strongly connected to, or start one of their own
+        int first = count;
+        int[] initial = aggregate.clone();
+        for (int i = 0; i < n; i++)
+        {
+            if (aggregate[i] != -1)
+                continue;
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                if (strong(a, d, i, q) && initial[a.index[q]] != -1 && initial[a.index[q]] < first)
+                {
+                    aggregate[i] = initial[a.index[q]];
+                    break;
+                }
+        }
+        for (int i = 0; i < n; i++)
+        {
+            if (aggregate[i] != -1)
+                continue;
+            aggregate[i] = count;
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                if (strong(a, d, i, q) && aggregate[a.index[q]] == -1)
+                    aggregate[a.index[q]] = count;
+            count++;
+        }
+
+        // tentative prolongation, constant on each aggregate and normalized
+        double[] weight = new double[count];
+        for (int i = 0; i < n; i++)
+            weight[aggregate[i]]++;
+        for (int k = 0; k < count; k++)
+            weight[k] = 1 / Math.sqrt(weight[k]);
+
+        double radius = radius(a, d);
+        double omega = DAMPING / radius;
+
+        // P = (I - omega D^-1 A) P0, where every row of P0 has a single entry
+        CsrMatrix p = new CsrMatrix(n, count, a.start[n]);
+        int[] marker = new int[count];
+        Arrays.fill(marker, -1);
+        int len = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int row = len;
+            marker[aggregate[i]] = len;
+            p.index[len] = aggregate[i];
+            p.value[len++] = weight[aggregate[i]];
+
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+            {
+                int k = aggregate[a.index[q]];
+                if (marker[k] < row)
+                {
+                    marker[k] = len;
+                    p.index[len] = k;
+                    p.value[len++] = 0;
+                }
+                p.value[marker[k]] -= omega * a.value[q] / d[i] * weight[k];
+            }
+            p.start[i + 1] = len;
+        }
+
+        return p;
+    }
+
+    // estimate of the spectral radius of D^-1 A by power iteration, from a fixed start so that it is reproducible
+    private static double radius(CsrMatrix a, double[] d)
+    {
+        int n = a.rows;
+        double[] v = new double[n], w = new double[n];
+        double res = 0;
+
+        for (int i = 0; i < n; i++)
+            v[i] = 1 + (i * 0x9E3779B9L & 0xFF) / 256.0;
+        for (int k = 0; k < POWER_STEPS; k++)
+        {
+            double norm = 0;
+            for (int i = 0; i < n; i++)
+            {
+                double value = 0;
+                for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                    value += a.value[q] * v[a.index[q]];
+                w[i] = value / d[i];
+                norm = Math.max(norm, Math.abs(w[i]));
+            }
+            res = norm;
+            for (int i = 0; i < n; i++)
+                v[i] = w[i] / norm;
+        }
+        return res;
+    }
+
+    private static boolean strong(CsrMatrix a, double[] d, int i, int q)
+    {
+        int j = a.index[q];
+        return j != i && Math.abs(a.value[q]) >= STRENGTH * Math.sqrt(d[i] * d[j]);
+    }
+
+    // dense Cholesky factorization of the coarsest system
+    private boolean factorCoarsest()
+    {
+        CsrMatrix a = matrices[levels - 1];
+        int n = a.rows;
+
+        cholesky = new double[n * n];
+        for (int i = 0; i < n; i++)
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                cholesky[i * n + a.index[q]] += a.value[q];
+
+        for (int j = 0; j < n; j++)
+        {
+            double d = cholesky[j * n + j];
+            for (int k = 0; k < j; k++)
+                d -= cholesky[j * n + k] * cholesky[j * n + k];
+            if (!(d > 0))
+                return false;
+            d = Math.sqrt(d);
+            cholesky[j * n + j] = d;
+
+            for (int i = j + 1; i < n; i++)
+            {
+                double value = cholesky[i * n + j];
+                for (int k = 0; k < j; k++)
+                    value -= cholesky[i * n + k] * cholesky[j * n + k];
+                cholesky[i * n + j] = value / d;
+            }
+        }
+        return true;
+    }
+
+    // methods
+
+    // z = M^-1 r for one V-cycle M from zero
+    void precondition(double[] r, double[] z)
+    {
+        Arrays.fill(z, 0);
+        cycle(r, z);
+    }
+
+    // improve x as a solution of A x = b by one V-cycle
+    void cycle(double[] b, double[] x)
+    {
+        cycle(0, b, x);
+    }
+
+    private void cycle(int l, double[] b, double[] x)
+    {
+        CsrMatrix a = matrices[l];
+        double[] d = diagonals[l], r = rs[l];
+
+        if (l == levels - 1)
+        {
+            solveCoarsest(b, x);
+            return;
+        }
+
+        smooth(a, d, b, x, true);
+
+        for (int i = 0; i < a.rows; i++)
+        {
+            double value = b[i];
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                value -= a.value[q] * x[a.index[q]];
+            r[i] = value;
+        }
+
+        // restrict with the transpose of the prolongation, correct on the coarser level and prolong back
+        CsrMatrix p = prolongations[l];
+        double[] bc = bs[l + 1], xc = xs[l + 1];
+        Arrays.fill(bc, 0);
+        Arrays.fill(xc, 0);
+        for (int i = 0; i < a.rows; i++)
+            for (int q = p.start[i]; q < p.start[i + 1]; q++)
+                bc[p.index[q]] += p.value[q] * r[i];
+
+        cycle(l + 1, bc, xc);
+
+        for (int i = 0; i < a.rows; i++)
+            for (int q = p.start[i]; q < p.start[i + 1]; q++)
+                x[i] += p.value[q] * xc[p.index[q]];
+
+        smooth(a, d, b, x, false);
+    }
+
+    // one Gauss-Seidel sweep in the given direction
+    private static void smooth(CsrMatrix a, double[] d, double[] b, double[] x, boolean forward)
+    {
+        for (int k = 0; k < a.rows; k++)
+        {
+            int i = forward ? k : a.rows - 1 - k;
+            double value = b[i];
+            for (int q = a.start[i]; q < a.start[i + 1]; q++)
+                if (a.index[q] != i)
+                    value -= a.value[q] * x[a.index[q]];
+            x[i] = value / d[i];
+        }
+    }
+
+    private void solveCoarsest(double[] b, double[] x)
+    {
+        int n = b.length;
+
+        for (int i = 0; i < n; i++)
+        {
+            double value = b[i];
+            for (int k = 0; k < i; k++)
+                value -= cholesky[i * n + k] * x[k];
+            x[i] = value / cholesky[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--)
+        {
+            double value = x[i];
+            for (int k = i + 1; k < n; k++)
+                value -= cholesky[k * n + i] * x[k];
+            x[i] = value / cholesky[i * n + i];
+        }
+    }
+}
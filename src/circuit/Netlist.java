@@ -0,0 +1,515 @@
+package circuit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A circuit read from a SPICE netlist, with its nodes and components looked up by name.
+ * The first line is the title, lines starting with * are comments, text after ; or $ is ignored and lines starting
+ * with + continue the previous card. R, C, L, V and I cards are supported, with values in SPICE notation such as
+ * 4.7k or 10meg, and V and I cards may give the value after DC. Nodes 0 and gnd are the same grounded node, names are not case
+ * sensitive, and reading stops at .end while other control cards are skipped.
+ * The input is read as a stream of bytes, and strings are only created for new names.
+ * Created by admin on 10/18/26.
+ */
+public class Netlist
+{
+    Circuit circuit;
+    String title;
+    NameTable<Node> nodes;
+    NameTable<Component> components;
+    Node ground;
+
+    // input state
+    InputStream in;
+    byte[] buffer = new byte[1 << 16];
+    int position, limit, line;
+
+    // tokens of the current card, stored one after the other in card
+    byte[] card = new byte[256];
+    int[] starts = new int[16], ends = new int[16];
+    int tokens;
+
+    private Netlist(InputStream in)
+    {
+        this.in = in;
+        circuit = new Circuit();
+        nodes = new NameTable<>();
+        components = new NameTable<>();
+    }
+
+    public static Netlist read(Path path) throws IOException
+    {
+        try (InputStream in = Files.newInputStream(path))
+        {
+            return read(in);
+        }
+    }
+
+    public static Netlist read(InputStream in) throws IOException
+    {
+        Netlist res = new Netlist(in);
+        res.parse();
+        res.in = null;
+        res.buffer = res.card = null;
+        return res;
+    }
+
+    // methods
+
+    public Circuit getCircuit() { return circuit; }
+
+    public String getTitle() { return title; }
+
+    // node of the given name, null if there is none
+    public Node getNode(String name)
+    {
+        return nodes.get(name);
+    }
+
+    // component of the given name including its type letter, null if there is none
+    public Component getComponent(String name)
+    {
+        return components.get(name);
+    }
+
+    public int getNodeCount() { return circuit.nodes.size(); }
+
+    public int getComponentCount() { return components.size(); }
+
+    // parsing
+
+    private void parse() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        int c;
+
+        line = 1;
+        while ((c = read()) != -1 && c != '\n')
+            if (c != '\r')
+                text.append((char) c);
+        title = text.toString();
+
+        while (readCard())
+        {
+            if (tokens == 0)
+                continue;
+
+            int type = Character.toUpperCase(card[starts[0]]);
+            if (type == '.')
+            {
+                if (equals(0, ".end"))
+                    break;
+                continue;
+            }
+
+            switch (type)
+            {
+                case 'R':
+                case 'C':
+                case 'L':
+                    if (tokens < 4)
+                        throw error("Expected name, two nodes and a value");
+                    addComponent(type, node(1), node(2), value(3));
+                    break;
+                case 'V':
+                case 'I':
+                    if (tokens < 3)
+                        throw error("Expected name and two nodes");
+                    int k = tokens >= 4 && equals(3, "dc") ? 4 : 3;
+                    addComponent(type, node(1), node(2), k < tokens ? value(k) : 0);
+                    break;
+                default:
+                    throw error("Unsupported element " + token(0));
+            }
+        }
+    }
+
+    private void addComponent(int type, Node a, Node b, double value) throws IOException
+    {
+        Component comp;
+
+        if (components.find(card, starts[0], ends[0]) != -1)
+            throw error("Duplicate element " + token(0));
+
+        switch (type)
+        {
+            case 'R':
+                comp = new Resistor(circuit, a, b, value);
+                break;
+            case 'C':
+                comp = new Capacitor(circuit, a, b, value);
+                break;
+            case 'L':
+                comp = new Inductor(circuit, a, b, value);
+                break;
+            case 'V':
+                // V(a) - V(b) = value, while a voltage source fixes the potential of its end relative to its start
+                comp = new VoltageSource(circuit, b, a, value);
+                break;
+            default:
+                // the current flows from a through the source to b
+                comp = new CurrentSource(circuit, a, b, value);
+        }
+
+        components.add(card, starts[0], ends[0], comp);
+    }
+
+    // node named by token k, created the first time it appears
+    private Node node(int k)
+    {
+        int index = nodes.find(card, starts[k], ends[k]);
+        if (index != -1)
+            return nodes.value(index);
+
+        // both names of ground are the same node, as a fixed potential does not let current leave the circuit
+        Node res;
+        if (equals(k, "0") || equals(k, "gnd"))
+        {
+            if (ground == null)
+            {
+                ground = new Node(circuit);
+                ground.setPotential(0);
+            }
+            res = ground;
+        }
+        else
+            res = new Node(circuit);
+
+        nodes.add(card, starts[k], ends[k], res);
+        return res;
+    }
+
+    // read the tokens of the next card, joining continuation lines, false at the end of the input
+    private boolean readCard() throws IOException
+    {
+        int c, length = 0;
+
+        tokens = 0;
+        c = skipBlanks();
+        if (c == -1)
+            return false;
+
+        // comment lines and stray continuations are skipped
+        if (c == '*' || c == '+')
+        {
+            skipLine();
+            return true;
+        }
+
+        while (true)
+        {
+            c = skipBlanks();
+
+            // inline comments run to the end of the line
+            if (c == ';' || c == '$')
+                while ((c = peek()) != -1 && c != '\n' && c != '\r')
+                    read();
+
+            if (c == -1)
+                return true;
+
+            if (c == '\n' || c == '\r')
+            {
+                read();
+                if (c == '\r' && peek() == '\n')
+                    read();
+                line++;
+
+                // continue with the next line if it starts with +
+                c = skipBlanks();
+                if (c != '+')
+                    return true;
+                read();
+                continue;
+            }
+
+            // copy the token
+            if (tokens == starts.length)
+            {
+                starts = Arrays.copyOf(starts, 2 * tokens);
+                ends = Arrays.copyOf(ends, 2 * tokens);
+            }
+            starts[tokens] = length;
+            while ((c = peek()) != -1 && !separator(c))
+            {
+                if (length == card.length)
+                    card = Arrays.copyOf(card, 2 * length);
+                card[length++] = (byte) read();
+            }
+            ends[tokens++] = length;
+        }
+    }
+
+    // skip spaces and separators within the line, returning the next character without reading it
+    private int skipBlanks() throws IOException
+    {
+        int c;
+        while ((c = peek()) != -1 && c != '\n' && c != '\r' && c != ';' && c != '$' && separator(c))
+            read();
+        return c;
+    }
+
+    private void skipLine() throws IOException
+    {
+        int c;
+        while ((c = peek()) != -1 && c != '\n' && c != '\r')
+            read();
+        if (c == -1)
+            return;
+        read();
+        if (c == '\r' && peek() == '\n')
+            read();
+        line++;
+    }
+
+    private static boolean separator(int c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == '=' || c == '(' || c == ')'
+               || c == ';' || c == '$';
+    }
+
+    private int peek() throws IOException
+    {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException
+    {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException
+    {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0)
+        {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    // whether token k equals lower case word, ignoring case
+    private boolean equals(int k, String word)
+    {
+        if (ends[k] - starts[k] != word.length())
+            return false;
+        for (int t = 0; t < word.length(); t++)
+            if (Character.toLowerCase((char) (card[starts[k] + t] & 0xff)) != word.charAt(t))
+                return false;
+        return true;
+    }
+
+    private String token(int k)
+    {
+        return new String(card, starts[k], ends[k] - starts[k], StandardCharsets.ISO_8859_1);
+    }
+
+    private IOException error(String message)
+    {
+        return new IOException("Line " + line + ": " + message);
+    }
+
+    static final double[] POWERS = new double[23]; // exact powers of ten
+
+    static
+    {
+        POWERS[0] = 1;
+        for (int k = 1; k < POWERS.length; k++)
+            POWERS[k] = POWERS[k - 1] * 10;
+    }
+
+    // value of token k in SPICE notation, a number followed by an optional scale factor and unit
+    private double value(int k) throws IOException
+    {
+        int t = starts[k], end = ends[k], digits = 0, exponent = 0, c;
+        long mantissa = 0;
+        boolean negative = false, any = false;
+        double scale = 1;
+
+        if (t < end && (card[t] == '-' || card[t] == '+'))
+            negative = card[t++] == '-';
+
+        // at most 18 digits are kept, the rest only change the exponent
+        for (; t < end && (c = card[t]) >= '0' && c <= '9'; t++, any = true)
+            if (digits < 18)
+            {
+                mantissa = 10 * mantissa + c - '0';
+                if (mantissa != 0)
+                    digits++;
+            }
+            else
+                exponent++;
+
+        if (t < end && card[t] == '.')
+            for (t++; t < end && (c = card[t]) >= '0' && c <= '9'; t++, any = true)
+                if (digits < 18)
+                {
+                    mantissa = 10 * mantissa + c - '0';
+                    if (mantissa != 0)
+                        digits++;
+                    exponent--;
+                }
+
+        if (!any)
+            throw error("Invalid value " + token(k));
+
+        // exponent, unless the e starts a unit
+        if (t + 1 < end && (card[t] == 'e' || card[t] == 'E'))
+        {
+            int s = t + 1, e = 0;
+            boolean minus = false;
+            if (card[s] == '-' || card[s] == '+')
+                minus = card[s++] == '-';
+            if (s < end && card[s] >= '0' && card[s] <= '9')
+            {
+                while (s < end && card[s] >= '0' && card[s] <= '9' && e < 10000)
+                    e = 10 * e + card[s++] - '0';
+                exponent += minus ? -e : e;
+                t = s;
+            }
+        }
+
+        // scale factor, anything after it is a unit
+        if (t < end)
+        {
+            switch (Character.toLowerCase((char) card[t]))
+            {
+                case 't': exponent += 12; break;
+                case 'g': exponent += 9; break;
+                case 'k': exponent += 3; break;
+                case 'u': exponent -= 6; break;
+                case 'n': exponent -= 9; break;
+                case 'p': exponent -= 12; break;
+                case 'f': exponent -= 15; break;
+                case 'm':
+                    if (t + 2 < end && Character.toLowerCase((char) card[t + 1]) == 'e'
+                        && Character.toLowerCase((char) card[t + 2]) == 'g')
+                        exponent += 6;
+                    else if (t + 2 < end && Character.toLowerCase((char) card[t + 1]) == 'i'
+                             && Character.toLowerCase((char) card[t + 2]) == 'l')
+                        scale = 25.4e-6;
+                    else
+                        exponent -= 3;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // exact operands give a correctly rounded result, otherwise the digits kept are parsed as text
+        double res;
+        if (digits <= 15 && exponent >= -22 && exponent <= 22)
+            res = exponent >= 0 ? mantissa * POWERS[exponent] : mantissa / POWERS[-exponent];
+        else
+            res = Double.parseDouble(mantissa + "E" + exponent);
+
+        res *= scale;
+        return negative ? -res : res;
+    }
+
+    /**
+     * A hash table from names to values, looked up by bytes without creating strings.
+     * Names are compared ignoring the case of ASCII letters.
+     */
+    static class NameTable<T>
+    {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<T> values = new ArrayList<>();
+        int[] slots = new int[64]; // index of each entry plus one, 0 if empty
+
+        int size() { return names.size(); }
+
+        T value(int index) { return values.get(index); }
+
+        T get(String name)
+        {
+            byte[] bytes = name.getBytes(StandardCharsets.ISO_8859_1);
+            int index = find(bytes, 0, bytes.length);
+            return index == -1 ? null : values.get(index);
+        }
+
+        // index of the name in bytes from start to end, -1 if it is not in the table
+        int find(byte[] bytes, int start, int end)
+        {
+            int mask = slots.length - 1, h = hash(bytes, start, end) & mask, index;
+
+            while ((index = slots[h] - 1) != -1)
+            {
+                if (matches(names.get(index), bytes, start, end))
+                    return index;
+                h = (h + 1) & mask;
+            }
+            return -1;
+        }
+
+        void add(byte[] bytes, int start, int end, T value)
+        {
+            names.add(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+            values.add(value);
+
+            if (2 * names.size() > slots.length)
+            {
+                // grow, placing every name again
+                slots = new int[2 * slots.length];
+                for (int index = 0; index < names.size(); index++)
+                    place(index);
+            }
+            else
+                place(names.size() - 1);
+        }
+
+        private void place(int index)
+        {
+            String name = names.get(index);
+            int mask = slots.length - 1, h = 0;
+
+            for (int t = 0; t < name.length(); t++)
+                h = 31 * h + lower(name.charAt(t));
+            h = mix(h) & mask;
+            while (slots[h] != 0)
+                h = (h + 1) & mask;
+            slots[h] = index + 1;
+        }
+
+        private static int hash(byte[] bytes, int start, int end)
+        {
+            int h = 0;
+            for (int t = start; t < end; t++)
+                h = 31 * h + lower(bytes[t] & 0xff);
+            return mix(h);
+        }
+
+        private static int mix(int h)
+        {
+            h *= 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+
+        private static int lower(int c)
+        {
+            return c >= 'A' && c <= 'Z' ? c + 32 : c;
+        }
+
+        private static boolean matches(String name, byte[] bytes, int start, int end)
+        {
+            if (name.length() != end - start)
+                return false;
+            for (int t = 0; t < name.length(); t++)
+                if (lower(name.charAt(t)) != lower(bytes[start + t] & 0xff))
+                    return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package circuit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A pass that collapses chains of resistors in series, resistors in parallel and dangling resistors before solving.
+ * The reduced network is solved as a smaller circuit of its own, and the currents, voltages and potentials of
+ * everything that was collapsed are found from it afterwards, in the reverse order of the reduction.
+ * The reduced circuit is kept and solved again while the reduction comes out the same, so that changing sources
+ * and fixed potentials only updates its values.
+ * Created by admin on 10/18/26.
+ */
+class NetworkReduction
+{
+    static final int LEAF = 0, SERIES = 1, PARALLEL = 2, DANGLING = 3;
+
+    // a component, or a resistor standing for collapsed ones, between nodes given by their potential variables
+    static class Edge
+    {
+        int kind, a, b;
+        double resistance;      // for resistors and collapsed edges
+        Component comp;         // for leaves
+        boolean reducible,      // whether the edge behaves as a resistor
+                alive = true;
+        Edge first, second;     // collapsed edges, with first on the side of a for series
+        int middle;             // node between first and second in series
+        Double current;         // from a to b, once known
+
+        Edge(Component comp)
+        {
+            this.comp = comp;
+            a = comp.start.potential.varIndex;
+            b = comp.end.potential.varIndex;
+            if (comp instanceof Resistor)
+                resistance = ((Resistor) comp).resistance;
+        }
+
+        Edge(int kind, int a, int b, double resistance, Edge first, Edge second)
+        {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.resistance = resistance;
+            this.first = first;
+            this.second = second;
+            reducible = true;
+        }
+
+        int other(int node) { return node == a ? b : a; }
+    }
+
+    Circuit circuit;
+    Circuit reduced;           // circuit solved in place of the original one
+    Node[] reducedNodes;       // node of reduced for each potential variable that was kept
+    Component[] reducedComps;  // component of reduced for each edge that was kept
+    Edge[] kept;               // edges of the last reduction that were kept
+    int[] keptNodes;
+    boolean[] keptFixed;
+
+    NetworkReduction(Circuit circuit)
+    {
+        this.circuit = circuit;
+    }
+
+    // methods
+
+    // bind every variable of system from the reduced circuit, returns false if nothing can be collapsed or
+    // the reduced circuit has no solution, which leaves the system to be solved as it is
+    boolean solve(LinearSystem system)
+    {
+        int vars = system.values.size();
+        boolean[] fixed = new boolean[vars], removed = new boolean[vars];
+        ArrayList<Edge>[] incident = incidence(vars);
+        ArrayList<Edge> edges = new ArrayList<>(), log = new ArrayList<>();
+
+        for (Node node : circuit.nodes)
+            fixed[node.potential.varIndex] = system.values.get(node.potential.varIndex) != null;
+
+        for (Component comp : circuit.components)
+        {
+            Edge edge = new Edge(comp);
+            edge.reducible = comp instanceof Resistor && edge.resistance > 0 && !Double.isInfinite(edge.resistance)
+                             && edge.a != edge.b;
+            edges.add(edge);
+            incident[edge.a].add(edge);
+            incident[edge.b].add(edge);
+        }
+
+        // collapse around every node until nothing changes, revisiting the ends of every new edge
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Node node : circuit.nodes)
+            queue.add(node.potential.varIndex);
+
+        while (!queue.isEmpty())
+        {
+            int v = queue.poll();
+            if (removed[v])
+                continue;
+
+            ArrayList<Edge> list = incident[v];
+            list.removeIf(edge -> !edge.alive);
+
+            if (!fixed[v] && list.size() == 1 && list.get(0).reducible)
+            {
+                // no current flows into a dangling node, which takes the potential of the other end
+                Edge edge = list.get(0);
+                Edge dangling = new Edge(DANGLING, edge.other(v), v, 0, edge, null);
+                edge.alive = false;
+                removed[v] = true;
+                log.add(dangling);
+                queue.add(edge.other(v));
+            }
+            else if (!fixed[v] && list.size() == 2 && list.get(0).reducible && list.get(1).reducible
+                     && list.get(0).other(v) != list.get(1).other(v))
+            {
+                Edge first = list.get(0), second = list.get(1);
+                Edge series = new Edge(SERIES, first.other(v), second.other(v),
+                                       first.resistance + second.resistance, first, second);
+                series.middle = v;
+                first.alive = second.alive = false;
+                removed[v] = true;
+                add(series, incident, edges, log, queue);
+            }
+            else
+            {
+                // resistors between the same pair of nodes
+                HashMap<Integer, Edge> ends = new HashMap<>();
+                for (Edge edge : new ArrayList<>(list))
+                {
+                    if (!edge.reducible || !edge.alive)
+                        continue;
+
+                    Edge other = ends.put(edge.other(v), edge);
+                    if (other != null)
+                    {
+                        double r = other.resistance * edge.resistance / (other.resistance + edge.resistance);
+                        Edge parallel = new Edge(PARALLEL, v, edge.other(v), r, other, edge);
+                        other.alive = edge.alive = false;
+                        ends.put(edge.other(v), parallel);
+                        add(parallel, incident, edges, log, queue);
+                    }
+                }
+            }
+        }
+
+        if (log.isEmpty())
+            return false;
+
+        ArrayList<Edge> keep = new ArrayList<>();
+        for (Edge edge : edges)
+            if (edge.alive)
+                keep.add(edge);
+
+        if (!sameReduction(keep, removed, fixed) && !build(keep, removed, fixed, system))
+            return false;
+        update(system);
+
+        if (!reduced.system.solveAll())
+            return false;
+
+        expand(system, log, removed);
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Edge>[] incidence(int vars)
+    {
+        ArrayList<Edge>[] res = new ArrayList[vars];
+        for (int j = 0; j < vars; j++)
+            res[j] = new ArrayList<>(2);
+        return res;
+    }
+
+    private static void add(Edge edge, ArrayList<Edge>[] incident, ArrayList<Edge> edges, ArrayList<Edge> log,
+                            ArrayDeque<Integer> queue)
+    {
+        incident[edge.a].add(edge);
+        incident[edge.b].add(edge);
+        edges.add(edge);
+        log.add(edge);
+        queue.add(edge.a);
+        queue.add(edge.b);
+    }
+
+    // whether the kept nodes and edges are those of the reduced circuit, so that only values have to change
+    private boolean sameReduction(ArrayList<Edge> keep, boolean[] removed, boolean[] fixed)
+    {
+        if (reduced == null || keep.size() != kept.length)
+            return false;
+
+        int n = 0;
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex;
+            if (removed[var])
+                continue;
+            if (n == keptNodes.length || keptNodes[n] != var || keptFixed[n] != fixed[var])
+                return false;
+            n++;
+        }
+        if (n != keptNodes.length)
+            return false;
+
+        for (int k = 0; k < kept.length; k++)
+        {
+            Edge edge = keep.get(k), last = kept[k];
+            if (edge.a != last.a || edge.b != last.b || edge.kind != last.kind || edge.comp != last.comp
+                || edge.resistance != last.resistance)
+                return false;
+        }
+
+        // the edges of the reduced circuit stand for the new ones from now on
+        kept = keep.toArray(new Edge[0]);
+        return true;
+    }
+
+    // create the reduced circuit, returns false if it has a component that cannot be copied
+    private boolean build(ArrayList<Edge> keep, boolean[] removed, boolean[] fixed, LinearSystem system)
+    {
+        Circuit res = new Circuit();
+        int vars = removed.length, n = 0;
+
+        reduced = null;
+        reducedNodes = new Node[vars];
+        keptNodes = new int[circuit.nodes.size()];
+        keptFixed = new boolean[keptNodes.length];
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex;
+            if (removed[var])
+                continue;
+            reducedNodes[var] = new Node(res);
+            keptNodes[n] = var;
+            keptFixed[n++] = fixed[var];
+        }
+        keptNodes = Arrays.copyOf(keptNodes, n);
+        keptFixed = Arrays.copyOf(keptFixed, n);
+
+        reducedComps = new Component[keep.size()];
+        for (int k = 0; k < reducedComps.length; k++)
+        {
+            Edge edge = keep.get(k);
+            Node a = reducedNodes[edge.a], b = reducedNodes[edge.b];
+            Component comp = edge.comp;
+
+            if (comp == null || comp instanceof Resistor)
+                reducedComps[k] = new Resistor(res, a, b, edge.resistance);
+            else if (comp instanceof VoltageSource)
+                reducedComps[k] = new VoltageSource(res, a, b, ((VoltageSource) comp).value);
+            else if (comp instanceof CurrentSource)
+                reducedComps[k] = new CurrentSource(res, a, b, ((CurrentSource) comp).value);
+            else if (comp instanceof Capacitor)
+                reducedComps[k] = new Capacitor(res, a, b, ((Capacitor) comp).capacitance);
+            else if (comp instanceof Inductor)
+                reducedComps[k] = new Inductor(res, a, b, ((Inductor) comp).inductance);
+            else
+                return false;
+        }
+
+        reduced = res;
+        kept = keep.toArray(new Edge[0]);
+        return true;
+    }
+
+    // set the sources and fixed potentials of the reduced circuit to those of the original one
+    private void update(LinearSystem system)
+    {
+        for (int var : keptNodes)
+        {
+            Double value = system.values.get(var);
+            CircuitVar potential = reducedNodes[var].potential;
+            if (value != null && !value.equals(reduced.system.values.get(potential.varIndex)))
+                potential.setValue(value);
+        }
+
+        for (int k = 0; k < kept.length; k++)
+        {
+            Component comp = kept[k].comp;
+            if (comp instanceof VoltageSource && ((VoltageSource) reducedComps[k]).value != ((VoltageSource) comp).value)
+                ((VoltageSource) reducedComps[k]).setVoltage(((VoltageSource) comp).value);
+            else if (comp instanceof CurrentSource
+                     && ((CurrentSource) reducedComps[k]).value != ((CurrentSource) comp).value)
+                ((CurrentSource) reducedComps[k]).setCurrent(((CurrentSource) comp).value);
+        }
+        reduced.update();
+    }
+
+    // bind the variables of system from the solution of the reduced circuit
+    private void expand(LinearSystem system, ArrayList<Edge> log, boolean[] removed)
+    {
+        Double[] potentials = new Double[removed.length];
+
+        system.resetBindings();
+        for (int var : keptNodes)
+            potentials[var] = reduced.system.getValue(reducedNodes[var].potential.varIndex);
+
+        for (int k = 0; k < kept.length; k++)
+        {
+            Edge edge = kept[k];
+            Component comp = reducedComps[k];
+            edge.current = reduced.system.getValue(comp.current.varIndex);
+            if (edge.comp != null)
+            {
+                system.bindings.set(edge.comp.current.varIndex, edge.current);
+                system.bindings.set(edge.comp.voltage.varIndex, reduced.system.getValue(comp.voltage.varIndex));
+            }
+        }
+
+        // every collapsed edge gets its current from the edge it was collapsed into, which comes later in the log
+        for (int t = log.size() - 1; t >= 0; t--)
+        {
+            Edge edge = log.get(t);
+            Double current = edge.current;
+
+            if (edge.kind == DANGLING)
+            {
+                potentials[edge.b] = potentials[edge.a];
+                edge.first.current = 0.0;
+            }
+            else if (edge.kind == SERIES)
+            {
+                Edge first = edge.first, second = edge.second;
+                int m = edge.middle;
+
+                if (current != null && potentials[edge.a] != null)
+                    potentials[m] = potentials[edge.a] - first.resistance * current;
+                else if (current != null && potentials[edge.b] != null)
+                    potentials[m] = potentials[edge.b] + second.resistance * current;
+                first.current = orient(current, first.a == edge.a);
+                second.current = orient(current, second.a == m);
+            }
+            else
+            {
+                // the current divides in inverse proportion to the resistances
+                Edge first = edge.first, second = edge.second;
+                Double part = current == null ? null : current * edge.resistance / first.resistance;
+                first.current = orient(part, first.a == edge.a);
+                part = current == null ? null : current * edge.resistance / second.resistance;
+                second.current = orient(part, second.a == edge.a);
+            }
+
+            for (Edge leaf : new Edge[]{edge.first, edge.second})
+                if (leaf != null && leaf.kind == LEAF)
+                {
+                    Double voltage = leaf.current == null ? null : -leaf.resistance * leaf.current;
+                    system.bindings.set(leaf.comp.current.varIndex, leaf.current);
+                    system.bindings.set(leaf.comp.voltage.varIndex, voltage);
+                }
+        }
+
+        for (Node node : circuit.nodes)
+            system.bindings.set(node.potential.varIndex, potentials[node.potential.varIndex]);
+    }
+
+    private static Double orient(Double current, boolean same)
+    {
+        return current == null || same ? current : -current;
+    }
+}
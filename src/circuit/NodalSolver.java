@@ -0,0 +1,468 @@
+package circuit;
+
+import java.util.Arrays;
+
+/**
+ * An iterative solver for circuits made of resistors and current sources, in which every node is connected
+ * to a node of fixed potential through resistors. Nodal analysis of such a circuit gives a symmetric positive
+ * definite system in the free node potentials, which is solved by preconditioned conjugate gradients,
+ * applying the conductances edge by edge instead of assembling a matrix, or by multigrid cycles alone.
+ * Solves start from the potentials of the last solution, and the preconditioner is kept while only the sources
+ * change. Circuits of any other kind, and solves that do not converge, are left to the direct solver.
+ * Created by admin on 10/18/26.
+ */
+public class NodalSolver
+{
+    public enum Preconditioner
+    {
+        JACOBI,             // scaling by the diagonal
+        INCOMPLETE_CHOLESKY, // zero fill incomplete Cholesky factorization
+        MULTIGRID            // one V-cycle of a smoothed aggregation hierarchy
+    }
+
+    Circuit circuit;
+    Preconditioner preconditioner;
+    boolean cycles;    // whether to iterate multigrid cycles instead of conjugate gradients
+    double tolerance;  // on the residual relative to the right-hand side
+    int maxIterations;
+    int iterations;    // taken by the last solve, -1 if it did not apply
+    double residual;   // relative residual reached by the last solve
+
+    // nodal system of the last solve, with one edge per resistor between free nodes
+    int n;
+    int[] edgeA, edgeB;
+    double[] conductance, diagonal, rhs;
+
+    // lower triangle of the incomplete Cholesky factor by rows, diagonal last
+    int[] lowerStart, lowerIndex;
+    double[] lowerValue;
+
+    Multigrid multigrid;
+    boolean prepared;  // whether the preconditioner belongs to the conductances of the last solve
+
+    NodalSolver(Circuit circuit, Preconditioner preconditioner, boolean cycles, double tolerance, int maxIterations)
+    {
+        this.circuit = circuit;
+        this.preconditioner = cycles ? Preconditioner.MULTIGRID : preconditioner;
+        this.cycles = cycles;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        iterations = -1;
+    }
+
+    // methods
+
+    public Preconditioner getPreconditioner() { return preconditioner; }
+
+    // whether multigrid cycles solve the system on their own
+    public boolean isMultigrid() { return cycles; }
+
+    // number of levels of the multigrid hierarchy, 0 if there is none
+    public int getLevels() { return multigrid == null ? 0 : multigrid.levels; }
+
+    public int getIterations() { return iterations; }
+
+    public double getResidual() { return residual; }
+
+    // bind every variable of system if the circuit can be solved this way, returns false otherwise
+    boolean solve(LinearSystem system)
+    {
+        int vars = system.values.size();
+        int[] free = new int[vars]; // index of each free node by its potential variable, -1 for fixed nodes
+        Arrays.fill(free, -1);
+
+        int lastN = n;
+        int[] lastA = edgeA, lastB = edgeB;
+        double[] lastConductance = conductance, lastDiagonal = diagonal;
+
+        iterations = -1;
+        n = 0;
+        for (Node node : circuit.nodes)
+            if (system.values.get(node.potential.varIndex) == null)
+                free[node.potential.varIndex] = n++;
+
+        if (!build(system, free))
+        {
+            prepared = false;
+            return false;
+        }
+
+        // the preconditioner only depends on the conductances between free nodes
+        if (n != lastN || !Arrays.equals(edgeA, lastA) || !Arrays.equals(edgeB, lastB)
+            || !Arrays.equals(conductance, lastConductance) || !Arrays.equals(diagonal, lastDiagonal))
+            prepared = false;
+        if (!prepared && !(prepared = prepare()))
+            return false;
+
+        double[] x = new double[n];
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex, i = free[var];
+            Double last = system.bindings.get(var);
+            if (i != -1 && last != null && !last.isNaN() && !last.isInfinite())
+                x[i] = last;
+        }
+
+        if (!(cycles ? multigridCycles(x) : conjugateGradients(x)))
+            return false;
+
+        // potentials of every node, then the currents and voltages of the components
+        system.resetBindings();
+        double[] potentials = new double[vars];
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex;
+            potentials[var] = free[var] == -1 ? system.values.get(var) : x[free[var]];
+            system.bind(var, potentials[var]);
+        }
+
+        for (Component comp : circuit.components)
+        {
+            double voltage = potentials[comp.end.potential.varIndex] - potentials[comp.start.potential.varIndex];
+            system.bind(comp.voltage.varIndex, voltage);
+            if (comp instanceof Resistor)
+                system.bind(comp.current.varIndex, -voltage / ((Resistor) comp).resistance);
+        }
+
+        return true;
+    }
+
+    // build the nodal system, returns false if the circuit is not a network of resistors and current sources
+    // with one fixed node in each of its connected parts
+    private boolean build(LinearSystem system, int[] free)
+    {
+        int m = 0, vars = free.length;
+        int[] parent = new int[vars];   // union find over the potential variables of the nodes
+        double[] injected = new double[vars], scale = new double[vars];
+
+        for (int j = 0; j < vars; j++)
+            parent[j] = j;
+
+        edgeA = new int[circuit.components.size()];
+        edgeB = new int[edgeA.length];
+        conductance = new double[edgeA.length];
+        diagonal = new double[n];
+        rhs = new double[n];
+
+        for (Component comp : circuit.components)
+        {
+            int a = comp.start.potential.varIndex, b = comp.end.potential.varIndex;
+
+            if (comp instanceof Resistor)
+            {
+                double r = ((Resistor) comp).resistance;
+                if (!(r > 0) || Double.isInfinite(r)
+                    || system.values.get(comp.current.varIndex) != null || system.values.get(comp.voltage.varIndex) != null)
+                    return false;
+
+                double g = 1 / r;
+                int i = free[a], j = free[b];
+                if (i != -1 && j != -1 && i != j)
+                {
+                    diagonal[i] += g;
+                    diagonal[j] += g;
+                    edgeA[m] = i;
+                    edgeB[m] = j;
+                    conductance[m++] = g;
+                }
+                else if (i != -1 && j == -1)
+                {
+                    diagonal[i] += g;
+                    rhs[i] += g * system.values.get(b);
+                }
+                else if (j != -1 && i == -1)
+                {
+                    diagonal[j] += g;
+                    rhs[j] += g * system.values.get(a);
+                }
+
+                union(parent, a, b);
+            }
+            else if (comp instanceof CurrentSource)
+            {
+                // the current leaves the start and enters the end
+                Double current = system.values.get(comp.current.varIndex);
+                if (current == null || system.values.get(comp.voltage.varIndex) != null)
+                    return false;
+                if (free[a] != -1)
+                    rhs[free[a]] -= current;
+                if (free[b] != -1)
+                    rhs[free[b]] += current;
+                injected[a] -= current;
+                injected[b] += current;
+                scale[a] += Math.abs(current);
+                scale[b] += Math.abs(current);
+            }
+            else
+                return false;
+        }
+
+        // a fixed node does not sink current, so each part needs exactly one to determine its potentials, and the
+        // currents its sources inject have to cancel out, otherwise the direct solver decides
+        int[] fixedNodes = new int[vars];
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex, root = find(parent, var);
+            if (free[var] == -1)
+                fixedNodes[root]++;
+            if (root != var)
+            {
+                injected[root] += injected[var];
+                scale[root] += scale[var];
+            }
+        }
+        for (Node node : circuit.nodes)
+        {
+            int var = node.potential.varIndex;
+            if (find(parent, var) == var && (fixedNodes[var] != 1 || Math.abs(injected[var]) > 1e-12 * scale[var]))
+                return false;
+        }
+
+        edgeA = Arrays.copyOf(edgeA, m);
+        edgeB = Arrays.copyOf(edgeB, m);
+        conductance = Arrays.copyOf(conductance, m);
+        return true;
+    }
+
+    private static int find(int[] parent, int i)
+    {
+        while (parent[i] != i)
+            i = parent[i] = parent[parent[i]];
+        return i;
+    }
+
+    private static void union(int[] parent, int i, int j)
+    {
+        parent[find(parent, i)] = find(parent, j);
+    }
+
+    // y = G x
+    private void multiply(double[] x, double[] y)
+    {
+        for (int i = 0; i < n; i++)
+            y[i] = diagonal[i] * x[i];
+        for (int e = 0; e < edgeA.length; e++)
+        {
+            int a = edgeA[e], b = edgeB[e];
+            double g = conductance[e];
+            y[a] -= g * x[b];
+            y[b] -= g * x[a];
+        }
+    }
+
+    // set up the preconditioner for the current conductances, returns false if it breaks down
+    private boolean prepare()
+    {
+        multigrid = null;
+        lowerValue = null;
+
+        switch (preconditioner)
+        {
+            case INCOMPLETE_CHOLESKY:
+                return factor();
+            case MULTIGRID:
+                multigrid = new Multigrid(n, edgeA, edgeB, conductance, diagonal);
+                return multigrid.positive;
+            default:
+                return true;
+        }
+    }
+
+    // z = M^-1 r
+    private void precondition(double[] r, double[] z)
+    {
+        if (preconditioner == Preconditioner.JACOBI)
+        {
+            for (int i = 0; i < n; i++)
+                z[i] = r[i] / diagonal[i];
+            return;
+        }
+        if (preconditioner == Preconditioner.MULTIGRID)
+        {
+            multigrid.precondition(r, z);
+            return;
+        }
+
+        // forward substitution with L, then back substitution with its transpose
+        for (int i = 0; i < n; i++)
+        {
+            double value = r[i];
+            int end = lowerStart[i + 1] - 1;
+            for (int q = lowerStart[i]; q < end; q++)
+                value -= lowerValue[q] * z[lowerIndex[q]];
+            z[i] = value / lowerValue[end];
+        }
+        for (int i = n - 1; i >= 0; i--)
+        {
+            int end = lowerStart[i + 1] - 1;
+            z[i] /= lowerValue[end];
+            for (int q = lowerStart[i]; q < end; q++)
+                z[lowerIndex[q]] -= lowerValue[q] * z[i];
+        }
+    }
+
+    // zero fill incomplete Cholesky factorization of G, returns false if it breaks down
+    private boolean factor()
+    {
+        int m = edgeA.length;
+        int[] byColumn = new int[m], byRow = new int[m], start = new int[n + 1];
+
+        // edges sorted by their smaller end, then stably by their larger one, so that each row has sorted columns
+        for (int e = 0; e < m; e++)
+            start[Math.min(edgeA[e], edgeB[e]) + 1]++;
+        for (int i = 0; i < n; i++)
+            start[i + 1] += start[i];
+        for (int e = 0; e < m; e++)
+            byColumn[start[Math.min(edgeA[e], edgeB[e])]++] = e;
+
+        Arrays.fill(start, 0);
+        for (int e = 0; e < m; e++)
+            start[Math.max(edgeA[e], edgeB[e]) + 1]++;
+        for (int i = 0; i < n; i++)
+            start[i + 1] += start[i];
+        for (int t = 0; t < m; t++)
+        {
+            int e = byColumn[t];
+            byRow[start[Math.max(edgeA[e], edgeB[e])]++] = e;
+        }
+
+        // rows of the lower triangle with the diagonal last, summing parallel resistors
+        lowerStart = new int[n + 1];
+        lowerIndex = new int[m + n];
+        lowerValue = new double[m + n];
+        int len = 0;
+        for (int i = 0, t = 0; i < n; i++)
+        {
+            lowerStart[i] = len;
+            for (; t < m && Math.max(edgeA[byRow[t]], edgeB[byRow[t]]) == i; t++)
+            {
+                int e = byRow[t], j = Math.min(edgeA[e], edgeB[e]);
+                if (len > lowerStart[i] && lowerIndex[len - 1] == j)
+                    lowerValue[len - 1] -= conductance[e];
+                else
+                {
+                    lowerIndex[len] = j;
+                    lowerValue[len++] = -conductance[e];
+                }
+            }
+            lowerIndex[len] = i;
+            lowerValue[len++] = diagonal[i];
+        }
+        lowerStart[n] = len;
+
+        // row i: l_ij = (a_ij - sum_k<j l_ik l_jk) / l_jj on the pattern, l_ii = sqrt(a_ii - sum_k<i l_ik^2)
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; i++)
+        {
+            int end = lowerStart[i + 1] - 1;
+            for (int q = lowerStart[i]; q < end; q++)
+                position[lowerIndex[q]] = q;
+
+            for (int q = lowerStart[i]; q < end; q++)
+            {
+                int j = lowerIndex[q], endJ = lowerStart[j + 1] - 1;
+                double value = lowerValue[q];
+                for (int s = lowerStart[j]; s < endJ; s++)
+                    if (position[lowerIndex[s]] != -1)
+                        value -= lowerValue[position[lowerIndex[s]]] * lowerValue[s];
+                lowerValue[q] = value / lowerValue[endJ];
+            }
+
+            double value = lowerValue[end];
+            for (int q = lowerStart[i]; q < end; q++)
+                value -= lowerValue[q] * lowerValue[q];
+            if (!(value > 0))
+                return false;
+            lowerValue[end] = Math.sqrt(value);
+
+            for (int q = lowerStart[i]; q < end; q++)
+                position[lowerIndex[q]] = -1;
+        }
+
+        return true;
+    }
+
+    // solve G x = rhs starting from x, returns false if the tolerance is not reached
+    private boolean conjugateGradients(double[] x)
+    {
+        double[] r = new double[n], z = new double[n], p = new double[n], q = new double[n];
+        double norm = Math.sqrt(dot(rhs, rhs)), rz, alpha, beta;
+
+        multiply(x, q);
+        for (int i = 0; i < n; i++)
+            r[i] = rhs[i] - q[i];
+
+        if (norm == 0)
+        {
+            Arrays.fill(x, 0);
+            iterations = 0;
+            residual = 0;
+            return true;
+        }
+
+        precondition(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        rz = dot(r, z);
+
+        for (iterations = 0; iterations < maxIterations; iterations++)
+        {
+            residual = Math.sqrt(dot(r, r)) / norm;
+            if (residual <= tolerance)
+                return true;
+
+            multiply(p, q);
+            alpha = rz / dot(p, q);
+            for (int i = 0; i < n; i++)
+            {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+            }
+
+            precondition(r, z);
+            double next = dot(r, z);
+            beta = next / rz;
+            rz = next;
+            for (int i = 0; i < n; i++)
+                p[i] = z[i] + beta * p[i];
+        }
+
+        residual = Math.sqrt(dot(r, r)) / norm;
+        return residual <= tolerance;
+    }
+
+    // solve G x = rhs by V-cycles starting from x, returns false if the tolerance is not reached
+    private boolean multigridCycles(double[] x)
+    {
+        double[] r = new double[n];
+        double norm = Math.sqrt(dot(rhs, rhs));
+
+        if (norm == 0)
+        {
+            Arrays.fill(x, 0);
+            iterations = 0;
+            residual = 0;
+            return true;
+        }
+
+        for (iterations = 0; ; iterations++)
+        {
+            multiply(x, r);
+            for (int i = 0; i < n; i++)
+                r[i] = rhs[i] - r[i];
+            residual = Math.sqrt(dot(r, r)) / norm;
+            if (residual <= tolerance || iterations == maxIterations)
+                return residual <= tolerance;
+
+            multigrid.cycle(rhs, x);
+        }
+    }
+
+    private static double dot(double[] v, double[] w)
+    {
+        double res = 0;
+        for (int i = 0; i < v.length; i++)
+            res += v[i] * w[i];
+        return res;
+    }
+}
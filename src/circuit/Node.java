@@ -44,7 +44,8 @@ public class Node implements CircuitElement
 
     public void remove()
     {
-        components.forEach(circuit::removeComponent);
+        // removing a component changes the list, so a copy is iterated
+        new ArrayList<>(components).forEach(circuit::removeComponent);
         potential.remove();
     }
 
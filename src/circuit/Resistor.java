@@ -24,11 +24,7 @@ public class Resistor extends Component
     public void setResistance(double resistance)
     {
         this.resistance = resistance;
-
-        current.resetRelations();
-        setCurrentRelations();
-        start.setRelations();
-        end.setRelations();
+        circuit.markDirty(this);
     }
 
     protected void setCurrentRelations()
@@ -0,0 +1,239 @@
+package circuit;
+
+import circuit.aux.Parallel;
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A parameter sweep over a circuit, evaluating probed variables at every combination of the parameter values.
+ * Points are ordered with the first parameter changing slowest.
+ * Sources and node potentials only change the constant terms, so their points share one factorization
+ * and are solved in blocks, while every combination of resistances is factored separately and in parallel.
+ * Created by admin on 10/18/26.
+ */
+public class Sweep
+{
+    static final int BLOCK = 16; // right-hand sides solved at once
+
+    ArrayList<CircuitElement> parameters;
+    ArrayList<double[]> values;
+    ArrayList<CircuitVar> probes;
+
+    public Sweep()
+    {
+        parameters = new ArrayList<>();
+        values = new ArrayList<>();
+        probes = new ArrayList<>();
+    }
+
+    // methods
+
+    public void addParameter(VoltageSource source, double... voltages)
+    {
+        add(source, voltages);
+    }
+
+    public void addParameter(CurrentSource source, double... currents)
+    {
+        add(source, currents);
+    }
+
+    public void addParameter(Resistor resistor, double... resistances)
+    {
+        add(resistor, resistances);
+    }
+
+    // the potential of node has to be set
+    public void addParameter(Node node, double... potentials)
+    {
+        add(node, potentials);
+    }
+
+    private void add(CircuitElement element, double[] points)
+    {
+        if (points.length == 0)
+            throw new IllegalArgumentException("Parameter without values");
+
+        parameters.add(element);
+        values.add(points.clone());
+    }
+
+    // each probe returns its index in the results of the sweep
+
+    public int probePotential(Node node)
+    {
+        return probe(node.potential);
+    }
+
+    public int probeCurrent(Component comp)
+    {
+        return probe(comp.current);
+    }
+
+    public int probeVoltage(Component comp)
+    {
+        return probe(comp.voltage);
+    }
+
+    private int probe(CircuitVar var)
+    {
+        probes.add(var);
+        return probes.size() - 1;
+    }
+
+    public int getProbes() { return probes.size(); }
+
+    public int getPoints()
+    {
+        int res = 1;
+        for (double[] points : values)
+            res *= points.length;
+        return res;
+    }
+
+    // value of each probe at each point, NaN where it is undetermined or the system has no solution
+    double[][] run(Circuit circuit)
+    {
+        LinearSystem system = circuit.system;
+        int points = getPoints(), p = parameters.size();
+        double[][] res = new double[probes.size()][points];
+
+        for (CircuitElement element : parameters)
+            if (element.getCircuit() != circuit)
+                throw new IllegalArgumentException("Parameter not in circuit");
+        for (CircuitVar var : probes)
+            if (var.parent.getCircuit() != circuit)
+                throw new IllegalArgumentException("Probe not in circuit");
+
+        Assembly assembly = system.assemble();
+        if (assembly == null)
+        {
+            for (double[] row : res)
+                Arrays.fill(row, Double.NaN);
+            return res;
+        }
+
+        // variable each parameter changes, and for resistors the entry of the matrix holding the resistance
+        int[] vars = new int[p], entries = new int[p];
+        int[] strides = new int[p];
+        ArrayList<Integer> matrixParams = new ArrayList<>(), rhsParams = new ArrayList<>();
+
+        for (int q = p - 1, stride = 1; q >= 0; stride *= values.get(q).length, q--)
+        {
+            CircuitElement element = parameters.get(q);
+            strides[q] = stride;
+
+            if (element instanceof Resistor)
+            {
+                vars[q] = ((Resistor) element).current.varIndex;
+                entries[q] = assembly.row(system, vars[q]);
+                if (assembly.columns[vars[q]] == -1 || entries[q] == -1)
+                    throw new IllegalArgumentException("Resistor current is fixed");
+                matrixParams.add(q);
+            }
+            else
+            {
+                if (element instanceof Node)
+                    vars[q] = ((Node) element).potential.varIndex;
+                else if (element instanceof VoltageSource)
+                    vars[q] = ((VoltageSource) element).voltage.varIndex;
+                else
+                    vars[q] = ((CurrentSource) element).current.varIndex;
+
+                if (assembly.columns[vars[q]] != -1)
+                    throw new IllegalArgumentException("Parameter value is not set");
+                rhsParams.add(q);
+            }
+        }
+
+        // points sharing the same resistances, grouped by the index of their combination
+        int combinations = 1;
+        for (int q : matrixParams)
+            combinations *= values.get(q).length;
+
+        int[][] groups = new int[combinations][points / combinations];
+        int[] sizes = new int[combinations];
+        for (int point = 0; point < points; point++)
+        {
+            int combination = 0;
+            for (int q : matrixParams)
+                combination = combination * values.get(q).length + point / strides[q] % values.get(q).length;
+            groups[combination][sizes[combination]++] = point;
+        }
+
+        Parallel.forEach(0, combinations, combination -> {
+            int[] group = groups[combination];
+            SparseLU lu = system.whole.lu;
+            boolean[] determined = system.whole.determined;
+
+            if (!matrixParams.isEmpty())
+            {
+                SparseMatrix a = new SparseMatrix(assembly.matrix);
+                for (int q : matrixParams)
+                    a.set(entries[q], assembly.columns[vars[q]], value(group[0], q, strides));
+
+                // a resistance of zero removes an entry, which needs an ordering of its own
+                lu = new SparseLU(system.whole.lu);
+                if (!lu.isAnalyzed(a))
+                    lu.analyze(a);
+                lu.factor(a);
+                determined = lu.determined();
+            }
+
+            SparseLU factored = lu;
+            boolean[] known = determined;
+
+            Parallel.forEach(0, (group.length + BLOCK - 1) / BLOCK, block -> {
+                int from = block * BLOCK, count = Math.min(BLOCK, group.length - from), m = assembly.rhs.length;
+                double[] b = new double[m * count], column = new double[m];
+
+                for (int r = 0; r < count; r++)
+                {
+                    System.arraycopy(assembly.rhs, 0, column, 0, m);
+                    for (int q : rhsParams)
+                        assembly.shift(column, vars[q], value(group[from + r], q, strides) - system.values.get(vars[q]));
+                    for (int i = 0; i < m; i++)
+                        b[i * count + r] = column[i];
+                }
+
+                double[] x = factored.solve(b, count);
+
+                for (int k = 0; k < probes.size(); k++)
+                {
+                    int var = probes.get(k).varIndex, col = assembly.columns[var];
+                    for (int r = 0; r < count; r++)
+                    {
+                        int point = group[from + r];
+                        if (factored.getCols() > 0 && Double.isNaN(x[r]))
+                            res[k][point] = Double.NaN;
+                        else if (col == -1)
+                            res[k][point] = bound(point, var, vars, strides, system);
+                        else
+                            res[k][point] = known[col] ? x[col * count + r] : Double.NaN;
+                    }
+                }
+            });
+        });
+
+        return res;
+    }
+
+    // value of parameter q at point
+    private double value(int point, int q, int[] strides)
+    {
+        double[] points = values.get(q);
+        return points[point / strides[q] % points.length];
+    }
+
+    // value of bound variable var at point, which is either swept or kept
+    private double bound(int point, int var, int[] vars, int[] strides, LinearSystem system)
+    {
+        for (int q = 0; q < vars.length; q++)
+            if (vars[q] == var && !(parameters.get(q) instanceof Resistor))
+                return value(point, q, strides);
+        return system.values.get(var);
+    }
+}
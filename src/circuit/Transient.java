@@ -0,0 +1,352 @@
+package circuit;
+
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A transient analysis of a circuit at a fixed time step.
+ * Capacitors and inductors are replaced by companion models, whose coefficients only depend on the step,
+ * so the matrix is factored once and every step is a forward and back substitution with new constant terms.
+ * The circuit is captured when the analysis is created, and later changes to it are not seen.
+ * Created by admin on 10/18/26.
+ */
+public class Transient
+{
+    public enum Method
+    {
+        BACKWARD_EULER,
+        TRAPEZOIDAL // second order, with a backward Euler first step to damp inconsistent initial conditions
+    }
+
+    // receives the value of every probe after each step
+    public interface Listener
+    {
+        void step(double time, double[] values);
+    }
+
+    final Circuit circuit;
+    final LinearSystem system;
+    final double step;
+    final Method method;
+    Assembly assembly;
+    double[] fixed;     // values of the bound variables when the analysis was created
+    double[] steady;    // steady state solution, NaN where it is undetermined
+    SparseLU lu, first; // factorization at the step, and for the backward Euler first step of the trapezoidal rule
+    boolean[] determined, firstDetermined;
+
+    // capacitors and inductors, with the row of their relation and the columns of their current and voltage
+    ArrayList<Component> storages = new ArrayList<>();
+    int[] rows, currentCols, voltageCols;
+    double[] values;      // capacitance or inductance
+    boolean[] inductors;
+
+    // state at the last step, current and voltage of each storage element
+    double[] currents, voltages;
+    HashMap<Component, Double> initial = new HashMap<>();
+    boolean started;
+    double time;
+    int steps;
+
+    // sources driven by a function of time, with the variable they fix
+    ArrayList<DoubleUnaryOperator> waveforms = new ArrayList<>();
+    ArrayList<Integer> waveformVars = new ArrayList<>();
+
+    ArrayList<CircuitVar> probes = new ArrayList<>();
+
+    public Transient(Circuit circuit, double step, Method method)
+    {
+        if (!(step > 0))
+            throw new IllegalArgumentException("Time step must be positive");
+
+        this.circuit = circuit;
+        this.step = step;
+        this.method = method;
+        system = circuit.system;
+
+        circuit.update();
+        assembly = system.assemble();
+        if (assembly == null)
+            throw new IllegalStateException("System has no solution");
+
+        fixed = new double[system.values.size()];
+        for (int j = 0; j < fixed.length; j++)
+            fixed[j] = assembly.columns[j] == -1 ? system.values.get(j) : Double.NaN;
+
+        double[] x = system.whole.lu.solve(assembly.rhs);
+        steady = new double[assembly.variables.length];
+        for (int j = 0; j < steady.length; j++)
+            steady[j] = x != null && system.whole.determined[j] ? x[j] : Double.NaN;
+
+        for (Component comp : circuit.components)
+            if (comp instanceof Capacitor || comp instanceof Inductor)
+                storages.add(comp);
+
+        int n = storages.size();
+        rows = new int[n];
+        currentCols = new int[n];
+        voltageCols = new int[n];
+        values = new double[n];
+        inductors = new boolean[n];
+        currents = new double[n];
+        voltages = new double[n];
+
+        for (int k = 0; k < n; k++)
+        {
+            Component comp = storages.get(k);
+            rows[k] = assembly.row(system, comp.current.varIndex);
+            currentCols[k] = assembly.columns[comp.current.varIndex];
+            voltageCols[k] = assembly.columns[comp.voltage.varIndex];
+            inductors[k] = comp instanceof Inductor;
+            values[k] = inductors[k] ? ((Inductor) comp).inductance : ((Capacitor) comp).capacitance;
+
+            if (rows[k] == -1 || currentCols[k] == -1 || voltageCols[k] == -1)
+                throw new IllegalArgumentException("Storage element with fixed current or voltage");
+        }
+
+        lu = factor(method == Method.TRAPEZOIDAL ? 2 / step : 1 / step);
+        determined = lu.determined();
+    }
+
+    // factor the matrix with companion models of coefficient scale times the capacitance or inductance
+    private SparseLU factor(double scale)
+    {
+        SparseMatrix a = new SparseMatrix(assembly.matrix);
+
+        for (int k = 0; k < rows.length; k++)
+            a.set(rows[k], inductors[k] ? currentCols[k] : voltageCols[k], scale * values[k]);
+
+        SparseLU res = new SparseLU(system.whole.lu);
+        if (!res.isAnalyzed(a))
+            res.analyze(a);
+        res.factor(a);
+        return res;
+    }
+
+    // methods
+
+    // voltage of capacitor at time zero, instead of its steady state value
+    public void setInitialVoltage(Capacitor capacitor, double voltage)
+    {
+        setInitial(capacitor, voltage);
+    }
+
+    // current of inductor at time zero, instead of its steady state value
+    public void setInitialCurrent(Inductor inductor, double current)
+    {
+        setInitial(inductor, current);
+    }
+
+    private void setInitial(Component comp, double value)
+    {
+        if (started)
+            throw new IllegalStateException("Analysis already started");
+        if (!storages.contains(comp))
+            throw new IllegalArgumentException("Element not in analysis");
+
+        initial.put(comp, value);
+    }
+
+    // drive the voltage of source by a function of time
+    public void setWaveform(VoltageSource source, DoubleUnaryOperator waveform)
+    {
+        addWaveform(source, source.voltage, waveform);
+    }
+
+    // drive the current of source by a function of time
+    public void setWaveform(CurrentSource source, DoubleUnaryOperator waveform)
+    {
+        addWaveform(source, source.current, waveform);
+    }
+
+    private void addWaveform(Component source, CircuitVar var, DoubleUnaryOperator waveform)
+    {
+        if (source.getCircuit() != circuit || assembly.columns[var.varIndex] != -1)
+            throw new IllegalArgumentException("Source not in analysis");
+
+        int index = waveformVars.indexOf(var.varIndex);
+        if (index == -1)
+        {
+            waveforms.add(waveform);
+            waveformVars.add(var.varIndex);
+        }
+        else
+            waveforms.set(index, waveform);
+    }
+
+    // each probe returns its index in the values given to listeners
+
+    public int probePotential(Node node)
+    {
+        return probe(node.potential);
+    }
+
+    public int probeCurrent(Component comp)
+    {
+        return probe(comp.current);
+    }
+
+    public int probeVoltage(Component comp)
+    {
+        return probe(comp.voltage);
+    }
+
+    // probe the potential of every node and then the current of every component, returning the index of the first
+    public int probeAll()
+    {
+        int res = probes.size();
+
+        for (Node node : circuit.nodes)
+            probe(node.potential);
+        for (Component comp : circuit.components)
+            probe(comp.current);
+
+        return res;
+    }
+
+    private int probe(CircuitVar var)
+    {
+        if (var.parent.getCircuit() != circuit || var.varIndex >= assembly.columns.length)
+            throw new IllegalArgumentException("Probe not in analysis");
+
+        probes.add(var);
+        return probes.size() - 1;
+    }
+
+    public int getProbes() { return probes.size(); }
+
+    public double getTime() { return time; }
+
+    public double getStep() { return step; }
+
+    // take the given number of steps, giving the probed values to listener after each one
+    public void run(int count, Listener listener)
+    {
+        double[] b = new double[assembly.rhs.length], out = new double[probes.size()], x;
+        double[] bound = new double[waveforms.size()];
+        SparseLU factorization;
+        boolean[] known;
+        boolean euler;
+
+        if (!started)
+            start();
+
+        for (int s = 0; s < count; s++)
+        {
+            time = (steps + 1) * step;
+
+            // the trapezoidal rule starts with a backward Euler step
+            euler = method == Method.BACKWARD_EULER || steps == 0;
+            if (euler && method == Method.TRAPEZOIDAL)
+            {
+                if (first == null)
+                {
+                    first = factor(1 / step);
+                    firstDetermined = first.determined();
+                }
+                factorization = first;
+                known = firstDetermined;
+            }
+            else
+            {
+                factorization = lu;
+                known = determined;
+            }
+
+            System.arraycopy(assembly.rhs, 0, b, 0, b.length);
+
+            for (int w = 0; w < waveforms.size(); w++)
+            {
+                int var = waveformVars.get(w);
+                bound[w] = waveforms.get(w).applyAsDouble(time);
+                assembly.shift(b, var, bound[w] - fixed[var]);
+            }
+
+            // history terms of the companion models
+            for (int k = 0; k < rows.length; k++)
+            {
+                double g = (euler ? 1 : 2) / step * values[k];
+                if (inductors[k])
+                    b[rows[k]] += euler ? g * currents[k] : g * currents[k] - voltages[k];
+                else
+                    b[rows[k]] += euler ? g * voltages[k] : g * voltages[k] - currents[k];
+            }
+
+            x = factorization.solve(b);
+            if (x == null)
+                throw new IllegalStateException("System has no solution at time " + time);
+
+            for (int k = 0; k < rows.length; k++)
+            {
+                currents[k] = x[currentCols[k]];
+                voltages[k] = x[voltageCols[k]];
+            }
+
+            steps++;
+
+            if (listener != null)
+            {
+                for (int k = 0; k < out.length; k++)
+                    out[k] = value(probes.get(k).varIndex, x, known, bound);
+                listener.step(time, out);
+            }
+        }
+    }
+
+    // take the given number of steps, returning the value of each probe at each step
+    public double[][] run(int count)
+    {
+        double[][] res = new double[probes.size()][count];
+        int[] s = {0};
+
+        run(count, (time, values) -> {
+            for (int k = 0; k < values.length; k++)
+                res[k][s[0]] = values[k];
+            s[0]++;
+        });
+
+        return res;
+    }
+
+    // initial state from the steady state solution and the initial conditions
+    private void start()
+    {
+        for (int k = 0; k < rows.length; k++)
+        {
+            Component comp = storages.get(k);
+            currents[k] = Double.isNaN(steady[currentCols[k]]) ? 0 : steady[currentCols[k]];
+            voltages[k] = Double.isNaN(steady[voltageCols[k]]) ? 0 : steady[voltageCols[k]];
+
+            // the other quantity is that of the steady state, so no current for capacitors and no voltage for inductors
+            if (initial.containsKey(comp))
+            {
+                if (inductors[k])
+                {
+                    currents[k] = initial.get(comp);
+                    voltages[k] = 0;
+                }
+                else
+                {
+                    voltages[k] = initial.get(comp);
+                    currents[k] = 0;
+                }
+            }
+        }
+
+        started = true;
+    }
+
+    private double value(int var, double[] x, boolean[] known, double[] bound)
+    {
+        int col = assembly.columns[var];
+
+        if (col != -1)
+            return known[col] ? x[col] : Double.NaN;
+
+        int w = waveformVars.indexOf(var);
+        return w == -1 ? fixed[var] : bound[w];
+    }
+}
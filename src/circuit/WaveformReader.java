@@ -0,0 +1,161 @@
+package circuit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a waveform file written by WaveformWriter, mapping it into memory so that only the parts read are loaded.
+ * The header holds the number of signals and steps, the time step and the kind of each signal with the index
+ * of its node or component in the order they were added to the circuit. It is followed by blocks of steps,
+ * each holding a column of times and then a column for every signal. The last block only holds the steps written,
+ * so that its columns are as long as that.
+ * Created by admin on 10/18/26.
+ */
+public class WaveformReader implements Closeable
+{
+    static final int MAGIC = 0x57415645, VERSION = 2;
+    static final int STEPS_OFFSET = 16;
+    static final int BLOCK = 4096;           // most steps in a block
+    static final long MAPPING = 64L << 20;   // most bytes mapped at once, unless a single step takes more
+    public static final byte POTENTIAL = 0, CURRENT = 1, VOLTAGE = 2;
+
+    FileChannel channel;
+    int signals, block;
+    long steps;
+    double step;
+    byte[] kinds;
+    int[] indices;
+    DoubleBuffer[] segments; // mapped parts of the file, each holding whole blocks
+    int blocksPerSegment;
+    long blocks;
+
+    public WaveformReader(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(32);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < 32 || header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new IOException("Not a waveform file");
+
+        signals = header.getInt();
+        block = header.getInt();
+        steps = header.getLong();
+        step = header.getDouble();
+
+        header = ByteBuffer.allocate(5 * signals);
+        channel.read(header, 32);
+        header.flip();
+        kinds = new byte[signals];
+        indices = new int[signals];
+        for (int k = 0; k < signals; k++)
+        {
+            kinds[k] = header.get();
+            indices[k] = header.getInt();
+        }
+
+        // segments of whole blocks within the same bound as the blocks of the writer, the last one as long as the data
+        long blockSize = (long) (signals + 1) * block * 8, start = headerSize(signals),
+             end = start + steps / block * blockSize + (long) (signals + 1) * (steps % block) * 8;
+        blocks = (steps + block - 1) / block;
+        blocksPerSegment = (int) Math.max(1, MAPPING / blockSize);
+        segments = new DoubleBuffer[(int) ((blocks + blocksPerSegment - 1) / blocksPerSegment)];
+        for (int s = 0; s < segments.length; s++)
+        {
+            long offset = start + (long) s * blocksPerSegment * blockSize;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                                      Math.min(blocksPerSegment * blockSize, end - offset)).asDoubleBuffer();
+        }
+    }
+
+    // size of the header for the given number of signals, aligned to doubles
+    static long headerSize(int signals)
+    {
+        return (32 + 5L * signals + 7) / 8 * 8;
+    }
+
+    // steps in each block for the given number of signals, so that mapping a block takes at most MAPPING bytes
+    static int blockSteps(int signals)
+    {
+        return (int) Math.max(1, Math.min(BLOCK, MAPPING / ((signals + 1) * 8L)));
+    }
+
+    // methods
+
+    public int getSignals() { return signals; }
+
+    public long getSteps() { return steps; }
+
+    public double getStep() { return step; }
+
+    // POTENTIAL, CURRENT or VOLTAGE
+    public byte getKind(int signal) { return kinds[signal]; }
+
+    // index of the node or component of signal, in the order they were added to the circuit
+    public int getIndex(int signal) { return indices[signal]; }
+
+    // signal of the given kind and element index, -1 if it is not in the file
+    public int find(byte kind, int index)
+    {
+        for (int k = 0; k < signals; k++)
+            if (kinds[k] == kind && indices[k] == index)
+                return k;
+        return -1;
+    }
+
+    public double[] getTimes(long from, int count)
+    {
+        return column(0, from, count);
+    }
+
+    public double[] read(int signal)
+    {
+        if (steps > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many steps to read at once");
+        return read(signal, 0, (int) steps);
+    }
+
+    // values of signal from step from on
+    public double[] read(int signal, long from, int count)
+    {
+        if (signal < 0 || signal >= signals)
+            throw new IndexOutOfBoundsException("Signal " + signal);
+        return column(signal + 1, from, count);
+    }
+
+    // copy count values of column c starting at step from, one block at a time
+    private double[] column(int c, long from, int count)
+    {
+        if (from < 0 || count < 0 || from + count > steps)
+            throw new IndexOutOfBoundsException("Steps " + from + " to " + (from + count));
+
+        double[] res = new double[count];
+        int done = 0;
+
+        while (done < count)
+        {
+            long s = from + done, b = s / block;
+            int offset = (int) (s % block), size = Math.min(count - done, block - offset),
+                length = b == blocks - 1 ? (int) (steps - b * block) : block; // steps in block b
+            DoubleBuffer segment = segments[(int) (b / blocksPerSegment)].duplicate();
+
+            segment.position((int) (b % blocksPerSegment * (signals + 1) * block) + c * length + offset);
+            segment.get(res, done, size);
+            done += size;
+        }
+
+        return res;
+    }
+
+    public void close() throws IOException
+    {
+        segments = null;
+        channel.close();
+    }
+}
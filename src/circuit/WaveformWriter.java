@@ -0,0 +1,122 @@
+package circuit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Writes the probed values of a transient analysis to a binary file as they are computed, see WaveformReader.
+ * The steps are grouped in blocks, each holding a column of times followed by a column for every signal,
+ * so that a signal can be read back without touching the others. Each block is mapped into memory as it is filled,
+ * with fewer steps in it the more signals there are so that the mapping stays within WaveformReader.MAPPING.
+ * Created by admin on 10/18/26.
+ */
+public class WaveformWriter implements Transient.Listener, Closeable
+{
+    FileChannel channel;
+    int signals, length; // steps in each block
+    long dataStart, steps;
+    DoubleBuffer block; // block being filled, one column after the other
+    int position;       // steps written to block
+
+    // columns of the file are the probes of analysis at this point
+    public WaveformWriter(Path path, Transient analysis) throws IOException
+    {
+        Circuit circuit = analysis.circuit;
+        HashMap<CircuitElement, Integer> indices = new HashMap<>();
+        int index = 0;
+
+        for (Node node : circuit.nodes)
+            indices.put(node, index++);
+        index = 0;
+        for (Component comp : circuit.components)
+            indices.put(comp, index++);
+
+        signals = analysis.probes.size();
+        length = WaveformReader.blockSteps(signals);
+        dataStart = WaveformReader.headerSize(signals);
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataStart);
+        header.putInt(WaveformReader.MAGIC).putInt(WaveformReader.VERSION).putInt(signals).putInt(length)
+              .putLong(0).putDouble(analysis.getStep());
+        for (CircuitVar var : analysis.probes)
+        {
+            CircuitElement parent = var.parent;
+            if (parent instanceof Node)
+                header.put(WaveformReader.POTENTIAL);
+            else
+                header.put(var == ((Component) parent).current ? WaveformReader.CURRENT : WaveformReader.VOLTAGE);
+            header.putInt(indices.get(parent));
+        }
+        header.rewind();
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.write(header, 0);
+    }
+
+    // methods
+
+    public void step(double time, double[] values)
+    {
+        if (block == null || position == length)
+            map();
+
+        block.put(position, time);
+        for (int k = 0; k < signals; k++)
+            block.put((k + 1) * length + position, values[k]);
+
+        position++;
+        steps++;
+    }
+
+    // map the next block of the file
+    private void map()
+    {
+        long size = (long) (signals + 1) * length * 8;
+
+        try
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, dataStart + steps / length * size,
+                                                  size);
+            block = buffer.asDoubleBuffer();
+            position = 0;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getSteps() { return steps; }
+
+    // record the number of steps written, and cut the last block down to them
+    public void close() throws IOException
+    {
+        long end = dataStart + steps / length * (signals + 1) * length * 8;
+
+        // move the columns of a partly filled block next to each other, in order so that none is overwritten
+        if (block != null && position < length)
+        {
+            for (int k = 1; k <= signals; k++)
+                for (int i = 0; i < position; i++)
+                    block.put(k * position + i, block.get(k * length + i));
+            end += (long) (signals + 1) * position * 8;
+        }
+
+        ByteBuffer count = ByteBuffer.allocate(8);
+        count.putLong(0, steps);
+        channel.write(count, WaveformReader.STEPS_OFFSET);
+        channel.truncate(end);
+
+        block = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,111 @@
+package circuit.aux;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file written by BinaryOutput, mapping it into memory one window at a time.
+ * Arrays are copied out of the mapped windows in bulk.
+ * Created by admin on 10/18/26.
+ */
+public class BinaryInput implements Closeable
+{
+    static final int WINDOW = 1 << 26; // bytes mapped at once
+
+    FileChannel channel;
+    long size, base; // size of the file, and its position at the start of the window
+    MappedByteBuffer window;
+
+    public BinaryInput(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+    }
+
+    // methods
+
+    public byte getByte() throws IOException
+    {
+        ensure(1);
+        return window.get();
+    }
+
+    public int getInt() throws IOException
+    {
+        ensure(4);
+        return window.getInt();
+    }
+
+    public long getLong() throws IOException
+    {
+        ensure(8);
+        return window.getLong();
+    }
+
+    public double getDouble() throws IOException
+    {
+        ensure(8);
+        return window.getDouble();
+    }
+
+    public void getInts(int[] a, int offset, int size) throws IOException
+    {
+        while (size > 0)
+        {
+            ensure(4);
+            int k = Math.min(size, window.remaining() / 4);
+            window.asIntBuffer().get(a, offset, k);
+            window.position(window.position() + 4 * k);
+            offset += k;
+            size -= k;
+        }
+    }
+
+    public void getDoubles(double[] a, int offset, int size) throws IOException
+    {
+        while (size > 0)
+        {
+            ensure(8);
+            int k = Math.min(size, window.remaining() / 8);
+            window.asDoubleBuffer().get(a, offset, k);
+            window.position(window.position() + 8 * k);
+            offset += k;
+            size -= k;
+        }
+    }
+
+    public void getBooleans(boolean[] a, int offset, int size) throws IOException
+    {
+        for (int k = 0; k < size; k++)
+            a[offset + k] = getByte() != 0;
+    }
+
+    // map the next window if the current one has less than bytes left
+    private void ensure(int bytes) throws IOException
+    {
+        if (window.remaining() < bytes)
+        {
+            map(base + window.position());
+            if (window.remaining() < bytes)
+                throw new EOFException();
+        }
+    }
+
+    private void map(long position) throws IOException
+    {
+        base = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+    }
+
+    public void close() throws IOException
+    {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,104 @@
+package circuit.aux;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes primitive values and arrays to a file in big endian order, through a buffer that is written out when full.
+ * See BinaryInput.
+ * Created by admin on 10/18/26.
+ */
+public class BinaryOutput implements Closeable
+{
+    FileChannel channel;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+    public BinaryOutput(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.WRITE);
+    }
+
+    // methods
+
+    public void putByte(byte x) throws IOException
+    {
+        ensure(1);
+        buffer.put(x);
+    }
+
+    public void putInt(int x) throws IOException
+    {
+        ensure(4);
+        buffer.putInt(x);
+    }
+
+    public void putLong(long x) throws IOException
+    {
+        ensure(8);
+        buffer.putLong(x);
+    }
+
+    public void putDouble(double x) throws IOException
+    {
+        ensure(8);
+        buffer.putDouble(x);
+    }
+
+    public void putInts(int[] a, int offset, int size) throws IOException
+    {
+        while (size > 0)
+        {
+            ensure(4);
+            int k = Math.min(size, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(a, offset, k);
+            buffer.position(buffer.position() + 4 * k);
+            offset += k;
+            size -= k;
+        }
+    }
+
+    public void putDoubles(double[] a, int offset, int size) throws IOException
+    {
+        while (size > 0)
+        {
+            ensure(8);
+            int k = Math.min(size, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(a, offset, k);
+            buffer.position(buffer.position() + 8 * k);
+            offset += k;
+            size -= k;
+        }
+    }
+
+    public void putBooleans(boolean[] a, int offset, int size) throws IOException
+    {
+        for (int k = 0; k < size; k++)
+            putByte(a[offset + k] ? (byte) 1 : 0);
+    }
+
+    // write out the buffer if it has less than bytes left
+    private void ensure(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public void close() throws IOException
+    {
+        flush();
+        channel.close();
+    }
+}
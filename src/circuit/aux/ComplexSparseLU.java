@@ -0,0 +1,263 @@
+package circuit.aux;
+
+import java.util.Arrays;
+
+/**
+ * A sparse LU factorization of a complex matrix, following SparseLU with complex arithmetic on primitive arrays.
+ * The pattern is given as a real SparseMatrix, and the values as a separate array holding the real and imaginary
+ * part of each entry in turn, in the order of the rows of the pattern. Vectors are interleaved the same way.
+ * The column ordering, the pivoting and the pattern of the factors are those of SparseFactorization, shared with
+ * SparseLU.
+ * Created by admin on 10/18/26.
+ */
+public class ComplexSparseLU extends SparseFactorization
+{
+    int[] colStart, colRows, colEntries; // pattern by column, with the index of each entry in the values
+    int[] rowLengths;
+
+    public ComplexSparseLU() {}
+
+    // share the symbolic analysis of other
+    public ComplexSparseLU(ComplexSparseLU other)
+    {
+        share(other);
+        colStart = other.colStart;
+        colRows = other.colRows;
+        colEntries = other.colEntries;
+        rowLengths = other.rowLengths;
+    }
+
+    // methods
+
+    public void analyze(SparseMatrix a)
+    {
+        int e = 0;
+
+        analyzePattern(a);
+
+        // index the entries by column
+        colStart = new int[cols + 1];
+        rowLengths = new int[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            rowLengths[i] = a.getLength(i);
+            for (int k = 0; k < a.getLength(i); k++)
+                colStart[a.getIndex(i, k) + 1]++;
+        }
+        for (int j = 0; j < cols; j++)
+            colStart[j + 1] += colStart[j];
+
+        int[] next = Arrays.copyOf(colStart, cols);
+        colRows = new int[colStart[cols]];
+        colEntries = new int[colStart[cols]];
+        for (int i = 0; i < rows; i++)
+            for (int k = 0; k < a.getLength(i); k++, e++)
+            {
+                int j = a.getIndex(i, k);
+                colRows[next[j]] = i;
+                colEntries[next[j]++] = e;
+            }
+    }
+
+    // factor the matrix with the pattern given to analyze and the given interleaved values of its entries
+    public void factor(double[] values)
+    {
+        double[] x = new double[2 * rows];
+        int[] reach = new int[rows], stack = new int[rows], position = new int[rows];
+        boolean[] visited = new boolean[rows];
+        int top, c, s, r, pivot, len, count, e;
+        double max, norm, re, im, pr, pi, d;
+
+        start(2 * colRows.length + cols + 16);
+
+        for (int k = 0; k < cols; k++)
+        {
+            c = order[k];
+
+            top = rows;
+            for (int t = colStart[c]; t < colStart[c + 1]; t++)
+            {
+                r = colRows[t];
+                if (!visited[r])
+                    top = reach(r, top, reach, stack, position, visited);
+            }
+
+            // scatter column c
+            norm = 0;
+            for (int t = colStart[c]; t < colStart[c + 1]; t++)
+            {
+                r = colRows[t];
+                e = colEntries[t];
+                x[2 * r] = values[2 * e];
+                x[2 * r + 1] = values[2 * e + 1];
+                norm = Math.max(norm, abs(values[2 * e], values[2 * e + 1]));
+            }
+
+            // sparse triangular solve with the columns of L computed so far
+            max = 0;
+            count = 0;
+            for (int t = top; t < rows; t++)
+            {
+                r = reach[t];
+                s = rowStep[r];
+                re = x[2 * r];
+                im = x[2 * r + 1];
+                if (s >= 0)
+                {
+                    for (int q = lp[s]; q < lp[s + 1]; q++)
+                    {
+                        int i = 2 * li[q];
+                        x[i] -= lx[2 * q] * re - lx[2 * q + 1] * im;
+                        x[i + 1] -= lx[2 * q] * im + lx[2 * q + 1] * re;
+                    }
+                }
+                else
+                {
+                    max = Math.max(max, abs(re, im));
+                    count++;
+                }
+            }
+
+            pivot = choosePivot(k, x, top, reach, visited, count, max, norm);
+
+            // store column k of U, with the diagonal last
+            len = up[k];
+            ensureU(len + rows - top + 1);
+            for (int t = top; t < rows; t++)
+            {
+                r = reach[t];
+                if (rowStep[r] >= 0 && (x[2 * r] != 0 || x[2 * r + 1] != 0))
+                {
+                    ui[len] = rowStep[r];
+                    ux[2 * len] = x[2 * r];
+                    ux[2 * len++ + 1] = x[2 * r + 1];
+                }
+            }
+
+            if (pivot == -1)
+                step[k] = -1;
+            else
+            {
+                s = steps++;
+                step[k] = s;
+                pivotRow[s] = pivot;
+                rowStep[pivot] = s;
+                lastPivot[k] = pivot;
+
+                pr = x[2 * pivot];
+                pi = x[2 * pivot + 1];
+                ui[len] = s;
+                ux[2 * len] = pr;
+                ux[2 * len++ + 1] = pi;
+
+                // store column s of L, divided by the pivot
+                d = pr * pr + pi * pi;
+                int lenL = lp[s];
+                ensureL(lenL + rows - top);
+                for (int t = top; t < rows; t++)
+                {
+                    r = reach[t];
+                    re = x[2 * r];
+                    im = x[2 * r + 1];
+                    if (rowStep[r] == -1 && (re != 0 || im != 0))
+                    {
+                        li[lenL] = r;
+                        lx[2 * lenL] = (re * pr + im * pi) / d;
+                        lx[2 * lenL++ + 1] = (im * pr - re * pi) / d;
+                    }
+                }
+                lp[s + 1] = lenL;
+            }
+            up[k + 1] = len;
+
+            for (int t = top; t < rows; t++)
+            {
+                r = reach[t];
+                x[2 * r] = 0;
+                x[2 * r + 1] = 0;
+                visited[r] = false;
+            }
+        }
+    }
+
+    // solve a x = b with interleaved vectors, null if b is inconsistent with the rows left out
+    public double[] solve(double[] b)
+    {
+        double[] work = Arrays.copyOf(b, 2 * rows), z = new double[2 * steps], res = new double[2 * cols];
+        double scale = 0, re, im;
+
+        for (int i = 0; i < rows; i++)
+            scale = Math.max(scale, abs(b[2 * i], b[2 * i + 1]));
+
+        // forward substitution with L
+        for (int s = 0; s < steps; s++)
+        {
+            re = work[2 * pivotRow[s]];
+            im = work[2 * pivotRow[s] + 1];
+            z[2 * s] = re;
+            z[2 * s + 1] = im;
+            for (int q = lp[s]; q < lp[s + 1]; q++)
+            {
+                int i = 2 * li[q];
+                work[i] -= lx[2 * q] * re - lx[2 * q + 1] * im;
+                work[i + 1] -= lx[2 * q] * im + lx[2 * q + 1] * re;
+            }
+        }
+
+        for (int i = 0; i < rows; i++)
+            if (rowStep[i] == -1 && abs(work[2 * i], work[2 * i + 1]) > 1e-9 * (1 + scale))
+                return null;
+
+        backSubstitute(z, res);
+        return res;
+    }
+
+    protected int width()
+    {
+        return 2;
+    }
+
+    protected double magnitude(double[] x, int i)
+    {
+        return abs(x[2 * i], x[2 * i + 1]);
+    }
+
+    protected int rowLength(int r)
+    {
+        return rowLengths[r];
+    }
+
+    protected void backSubstitute(double[] z, double[] res)
+    {
+        double re, im, pr, pi, d, vr, vi;
+
+        for (int k = cols - 1; k >= 0; k--)
+        {
+            if (step[k] == -1)
+                continue;
+
+            int s = step[k], q = up[k + 1] - 1;
+            re = z[2 * s];
+            im = z[2 * s + 1];
+            pr = ux[2 * q];
+            pi = ux[2 * q + 1];
+            d = pr * pr + pi * pi;
+            vr = (re * pr + im * pi) / d;
+            vi = (im * pr - re * pi) / d;
+            res[2 * order[k]] = vr;
+            res[2 * order[k] + 1] = vi;
+
+            for (q = up[k]; q < up[k + 1] - 1; q++)
+            {
+                int i = 2 * ui[q];
+                z[i] -= ux[2 * q] * vr - ux[2 * q + 1] * vi;
+                z[i + 1] -= ux[2 * q] * vi + ux[2 * q + 1] * vr;
+            }
+        }
+    }
+
+    private static double abs(double re, double im)
+    {
+        return Math.sqrt(re * re + im * im);
+    }
+}
@@ -0,0 +1,78 @@
+package circuit.aux;
+
+/**
+ * The inner loops of the operations of real matrices. These are the scalar versions, which are replaced by those of
+ * VectorKernels when that class was compiled in, the jdk.incubator.vector module is present and the circuit.vector
+ * system property is not false.
+ * VectorKernels is kept in a source folder of its own, so that everything else stays at Java 8.
+ * Created by admin on 10/18/26.
+ */
+class Kernels
+{
+    static final Kernels KERNELS = select();
+
+    // methods
+
+    private static Kernels select()
+    {
+        if (!"false".equals(System.getProperty("circuit.vector")))
+        {
+            try
+            {
+                Kernels res = (Kernels) Class.forName("circuit.aux.VectorKernels").getDeclaredConstructor()
+                                             .newInstance();
+                // a single lane is no faster than the scalar loops
+                if (res.lanes() > 1)
+                    return res;
+            }
+            catch (ReflectiveOperationException | LinkageError | RuntimeException e)
+            {
+                // not compiled in, or the module was not added
+            }
+        }
+        return new Kernels();
+    }
+
+    // number of doubles processed at once
+    protected int lanes()
+    {
+        return 1;
+    }
+
+    // y += a x over the first n entries
+    protected void axpy(double a, double[] x, double[] y, int n)
+    {
+        for (int i = 0; i < n; i++)
+            y[i] += a * x[i];
+    }
+
+    // x = a x over the first n entries
+    protected void scale(double a, double[] x, int n)
+    {
+        for (int i = 0; i < n; i++)
+            x[i] *= a;
+    }
+
+    // res = a x over the first n entries
+    protected void scale(double a, double[] x, double[] res, int n)
+    {
+        for (int i = 0; i < n; i++)
+            res[i] = x[i] * a;
+    }
+
+    // x . y over the first n entries
+    protected double dot(double[] x, double[] y, int n)
+    {
+        double res = 0;
+        for (int i = 0; i < n; i++)
+            res += x[i] * y[i];
+        return res;
+    }
+
+    // res = a x for the first rows rows of a, over their first n entries
+    protected void gemv(double[][] a, double[] x, double[] res, int rows, int n)
+    {
+        for (int i = 0; i < rows; i++)
+            res[i] = dot(a[i], x, n);
+    }
+}
@@ -3,19 +3,20 @@ package circuit.aux;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * A resizable matrix with arithmetic operations.
+ * The array grows geometrically, so rows and columns can be appended in amortized constant time.
  * Created by admin on 7/5/16.
  */
 public class Matrix
 {
-    double[][] array;
+    double[][] array; // may be larger than rows x cols, with every cell outside kept at 0
     int rows, cols;
     double init = 0;
 
-    BinaryOperator<Double> add = (i, j) -> i + j, mul = (i, j) -> i * j;
+    DoubleBinaryOperator add, mul; // field operations, null for the real numbers
 
     public Matrix()
     {
@@ -35,11 +36,20 @@ public class Matrix
         this.init = init;
     }
 
-    public Matrix(BinaryOperator<Double> add, BinaryOperator<Double> mul)
+    public Matrix(DoubleBinaryOperator add, DoubleBinaryOperator mul)
     {
         rows = cols = 0;
         this.add = add;
         this.mul = mul;
+
+        // a custom field needs both operations
+        if (add != null || mul != null)
+        {
+            if (add == null)
+                this.add = Double::sum;
+            if (mul == null)
+                this.mul = (i, j) -> i * j;
+        }
     }
 
     public Matrix(Matrix other)
@@ -47,11 +57,16 @@ public class Matrix
         rows = other.rows;
         cols = other.cols;
         init = other.init;
+        add = other.add;
+        mul = other.mul;
 
         // deep copy
-        array = new double[rows][cols];
-        for (int i = 0; i < rows; i++)
-            array[i] = Arrays.copyOf(other.array[i], cols);
+        if (other.array != null)
+        {
+            array = new double[rows][];
+            for (int i = 0; i < rows; i++)
+                array[i] = Arrays.copyOf(other.array[i], cols);
+        }
     }
 
     // methods
@@ -64,30 +79,48 @@ public class Matrix
     {
         String res = "";
         if (array != null)
-            for (double[] row : array)
-                res += Arrays.toString(row) + "\n";
+            for (int i = 0; i < rows; i++)
+                res += Arrays.toString(Arrays.copyOf(array[i], cols)) + "\n";
         return res;
     }
 
     public void resize(int di, int dj)
     {
-        double[][] newArray;
-
-        rows += di;
-        cols += dj;
+        int newRows = rows + di, newCols = cols + dj;
 
-        // resize array
         if (array != null)
         {
-            newArray = new double[rows][cols];
-            for (int i1 = 0; i1 < rows; i1++)
-                newArray[i1] = new double[cols];
+            reserve(newRows, newCols);
+
+            // clear the cells left outside the matrix
+            for (int i = newRows; i < rows; i++)
+                Arrays.fill(array[i], 0, cols, 0);
+            if (newCols < cols)
+                for (int i = 0; i < Math.min(rows, newRows); i++)
+                    Arrays.fill(array[i], newCols, cols, 0);
+        }
 
-            for (int i = 0; i < rows; i++)
-                for (int j = 0; j < cols; j++)
-                    if (i < array.length && j < array[0].length)
-                        newArray[i][j] = array[i][j];
-            array = newArray;
+        rows = newRows;
+        cols = newCols;
+    }
+
+    // grow array so that it holds at least newRows x newCols cells
+    private void reserve(int newRows, int newCols)
+    {
+        int capacity = array.length == 0 ? 0 : array[0].length, length = array.length;
+
+        if (newCols > capacity)
+        {
+            capacity = Math.max(newCols, 2 * capacity);
+            for (int i = 0; i < length; i++)
+                array[i] = Arrays.copyOf(array[i], capacity);
+        }
+
+        if (newRows > length)
+        {
+            array = Arrays.copyOf(array, Math.max(newRows, 2 * length));
+            for (int i = length; i < array.length; i++)
+                array[i] = new double[capacity];
         }
     }
 
@@ -115,7 +148,7 @@ public class Matrix
 
         // resize if necessary
         if (i >= rows || j >= cols)
-            resize(i + 1 - rows, j + 1 - cols);
+            resize(Math.max(i + 1 - rows, 0), Math.max(j + 1 - cols, 0));
 
         // initialize array
         if (array == null)
@@ -126,9 +159,10 @@ public class Matrix
 
     private void initArray()
     {
-        array = new double[rows][cols];
+        array = new double[0][];
+        reserve(rows, cols);
         for (int i1 = 0; i1 < rows; i1++)
-            Arrays.fill(array[i1], init);
+            Arrays.fill(array[i1], 0, cols, init);
     }
 
     public double[] getRow(int i)
@@ -142,13 +176,44 @@ public class Matrix
         return Arrays.copyOf(array[i], cols);
     }
 
+    // make sure row i exists and the array is initialized
+    private double[] rowArray(int i)
+    {
+        if (i == -1)
+            i += rows;
+
+        if (i >= rows)
+            resize(i + 1 - rows, 0);
+
+        if (array == null)
+            initArray();
+
+        return array[i];
+    }
+
     // assuming row.length = cols
     public void addRow(int i, double[] row)
     {
-        row = Arrays.copyOf(row, cols);
+        addRow(i, row, 1);
+    }
 
-        for (int j = 0; j < cols; j++)
-            set(i, j, add.apply(get(i, j), row[j]));
+    // add factor times row to row i
+    public void addRow(int i, double[] row, double factor)
+    {
+        double[] a = rowArray(i);
+        int n = Math.min(row.length, cols);
+
+        if (add == null)
+            Kernels.KERNELS.axpy(factor, row, a, n);
+        else
+            for (int j = 0; j < n; j++)
+                a[j] = add.applyAsDouble(a[j], factor == 1 ? row[j] : mul.applyAsDouble(row[j], factor));
+    }
+
+    // add factor times row k to row i
+    public void addRow(int i, int k, double factor)
+    {
+        addRow(i, rowArray(k), factor);
     }
 
     public double[] getColumn(int j)
@@ -165,22 +230,37 @@ public class Matrix
     // assuming col.length = rows
     public void addColumn(int j, double[] col)
     {
-        col = Arrays.copyOf(col, rows);
+        int n = Math.min(col.length, rows);
 
-        for (int i = 0; i < rows; i++)
-            set(i, j, add.apply(get(i, j), col[i]));
+        if (j >= cols)
+            resize(0, j + 1 - cols);
+        if (array == null)
+            initArray();
+
+        for (int i = 0; i < n; i++)
+            array[i][j] = add == null ? array[i][j] + col[i] : add.applyAsDouble(array[i][j], col[i]);
     }
 
     public void multiplyRow(int i, double x)
     {
-        for (int j = 0; j < cols; j++)
-            set(i, j, mul.apply(get(i, j), x));
+        double[] a = rowArray(i);
+
+        if (add == null)
+            Kernels.KERNELS.scale(x, a, cols);
+        else
+            for (int j = 0; j < cols; j++)
+                a[j] = mul.applyAsDouble(a[j], x);
     }
 
     public void multiplyColumn(int j, double x)
     {
+        if (j >= cols)
+            resize(0, j + 1 - cols);
+        if (array == null)
+            initArray();
+
         for (int i = 0; i < rows; i++)
-            set(i, j, mul.apply(get(i, j), x));
+            array[i][j] = add == null ? array[i][j] * x : mul.applyAsDouble(array[i][j], x);
     }
 
     public void setRow(int i, double[] row)
@@ -217,18 +297,20 @@ public class Matrix
 
         if (i > rows)
             resize(i - rows, 0);
-        else
-            resize(1, 0);
+        resize(1, 0);
 
-        if (array == null)
+        boolean fresh = array == null;
+        if (fresh)
             initArray();
 
-        // shift rows down
-        for (int i1 = rows - 2; i1 >= i; i1--)
-            setRow(i1 + 1, getRow(i1));
+        // shift rows down, moving the empty row at the end to i
+        double[] row = array[rows - 1];
+        System.arraycopy(array, i, array, i + 1, rows - 1 - i);
+        array[i] = row;
 
         // clear ith row
-        multiplyRow(i, 0);
+        if (fresh)
+            Arrays.fill(row, 0, cols, 0);
     }
 
     // create new column at jth position
@@ -239,15 +321,24 @@ public class Matrix
 
         if (j > cols)
             resize(0, j - cols);
-        else
-            resize(0, 1);
+        resize(0, 1);
 
-        // shift columns down
-        for (int j1 = cols - 2; j1 >= j; j1--)
-            setColumn(j1 + 1, getColumn(j1));
+        if (array == null && rows == 0)
+            return;
 
-        // clear jth column
-        multiplyColumn(j, 0);
+        boolean fresh = array == null;
+        if (fresh)
+            initArray();
+
+        // shift columns down, clearing the jth column
+        if (j < cols - 1 || fresh)
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                System.arraycopy(array[i], j, array[i], j + 1, cols - 1 - j);
+                array[i][j] = 0;
+            }
+        }
     }
 
     public void deleteRow(int i)
@@ -255,11 +346,16 @@ public class Matrix
         if (i >= rows)
             return;
 
-        // shift rows up
-        for (int i1 = i; i1 < rows - 1; i1++)
-            setRow(i1, getRow(i1 + 1));
+        // shift rows up, moving the cleared ith row to the end
+        if (array != null)
+        {
+            double[] row = array[i];
+            System.arraycopy(array, i + 1, array, i, rows - 1 - i);
+            Arrays.fill(row, 0, cols, 0);
+            array[rows - 1] = row;
+        }
 
-        resize(-1, 0);
+        rows--;
     }
 
     public void deleteColumn(int j)
@@ -267,27 +363,37 @@ public class Matrix
         if (j >= cols)
             return;
 
-        // shift rows up
-        for (int j1 = j; j1 < cols - 1; j1++)
-            setColumn(j1, getColumn(j1 + 1));
+        // shift columns up
+        if (array != null)
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                System.arraycopy(array[i], j + 1, array[i], j, cols - 1 - j);
+                array[i][cols - 1] = 0;
+            }
+        }
 
-        resize(0, -1);
+        cols--;
     }
 
-    public static double scalarProduct(double[] v, double[] w, BinaryOperator<Double> mul)
+    public static double scalarProduct(double[] v, double[] w, DoubleBinaryOperator mul)
     {
+        if (mul == null)
+            return scalarProduct(v, w);
+
         int min = v.length > w.length ? w.length : v.length;
         double res = 0;
 
         for (int i = 0; i < min; i++)
-            res += mul.apply(v[i], w[i]);
+            res += mul.applyAsDouble(v[i], w[i]);
 
         return res;
     }
 
     public static double scalarProduct(double[] v, double[] w)
     {
-        return scalarProduct(v, w, (i, j) -> i * j);
+        int min = v.length > w.length ? w.length : v.length;
+        return Kernels.KERNELS.dot(v, w, min);
     }
 
     public double[] transform(double[] vector)
@@ -297,8 +403,26 @@ public class Matrix
 
         double[] res = new double[rows];
 
+        if (array == null)
+            initArray();
+
+        // rows may be longer than cols, so only the first cols entries are used
+        if (add == null)
+        {
+            Kernels.KERNELS.gemv(array, vector, res, rows, cols);
+            return res;
+        }
+
         for (int i = 0; i < rows; i++)
-            res[i] = scalarProduct(getRow(i), vector, mul);
+        {
+            double[] a = array[i];
+            double x = 0;
+
+            for (int j = 0; j < cols; j++)
+                x = add.applyAsDouble(x, mul.applyAsDouble(a[j], vector[j]));
+
+            res[i] = x;
+        }
 
         return res;
     }
@@ -355,11 +479,16 @@ public class Matrix
         return res;
     }
 
+    // whether the real operations run on vector kernels
+    public static boolean isVectorized()
+    {
+        return Kernels.KERNELS.lanes() > 1;
+    }
+
     public static double[] multiply(double[] row, double factor)
     {
         double[] res = new double[row.length];
-        for (int i = 0; i < row.length; i++)
-            res[i] = row[i] * factor;
+        Kernels.KERNELS.scale(factor, row, res, row.length);
         return res;
     }
 }
@@ -0,0 +1,47 @@
+package circuit.aux;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs independent jobs on the common fork join pool, splitting ranges of job indices in halves.
+ * Created by admin on 10/18/26.
+ */
+public class Parallel
+{
+    // run body for every index in [from, to)
+    public static void forEach(int from, int to, IntConsumer body)
+    {
+        if (to - from == 1)
+            body.accept(from);
+        else if (to > from)
+            ForkJoinPool.commonPool().invoke(new Range(from, to, body));
+    }
+
+    static class Range extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        int from, to;
+        IntConsumer body;
+
+        Range(int from, int to, IntConsumer body)
+        {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        protected void compute()
+        {
+            if (to - from == 1)
+                body.accept(from);
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid, body), new Range(mid, to, body));
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package circuit.aux;
+
+import java.util.Arrays;
+
+/**
+ * What the real and complex sparse LU factorizations share: the symbolic analysis, the pattern of the factors and
+ * the pivoting by columns of L and U, which do not depend on what the values are.
+ * Each entry of the factors and of the vectors takes width() doubles, interleaved.
+ * Created by admin on 10/18/26.
+ */
+abstract class SparseFactorization
+{
+    // symbolic analysis
+    int rows, cols;
+    int[] order;            // order[k] is the kth column to be eliminated
+    SparseMatrix pattern;   // matrix the ordering was computed for
+
+    // numeric factorization, with L and U stored by column
+    int[] lp, li, up, ui;   // column pointers and row indices of L and U
+    double[] lx, ux;        // values of L and U
+    int[] step,             // step at which the kth column was eliminated, -1 if it is free
+          pivotRow,         // row chosen at each step
+          rowStep,          // step at which each row was chosen, -1 if it was not
+          lastPivot;        // row chosen for the kth column in the previous factorization
+    int steps;
+
+    double tolerance = 0.1; // a pivot must be at least this fraction of the largest candidate
+
+    // methods
+
+    public int getRows() { return rows; }
+
+    public int getCols() { return cols; }
+
+    // number of pivots found, i.e. the rank of the matrix
+    public int getRank() { return steps; }
+
+    // doubles taken by each value
+    protected abstract int width();
+
+    // magnitude of the ith entry of the vector x
+    protected abstract double magnitude(double[] x, int i);
+
+    // number of entries in row r of the matrix being factored, so that sparser pivot rows can be preferred
+    protected abstract int rowLength(int r);
+
+    // back substitution with U, writing the value of each pivot column into res
+    protected abstract void backSubstitute(double[] z, double[] res);
+
+    // share the symbolic analysis of other, to factor matrices of the same pattern independently
+    protected void share(SparseFactorization other)
+    {
+        rows = other.rows;
+        cols = other.cols;
+        order = other.order;
+        pattern = other.pattern;
+        tolerance = other.tolerance;
+        if (other.lastPivot != null)
+            lastPivot = Arrays.copyOf(other.lastPivot, cols);
+    }
+
+    // order columns of a by approximate minimum degree on the pattern of a^T a
+    protected void analyzePattern(SparseMatrix a)
+    {
+        rows = a.getRows();
+        cols = a.getCols();
+        pattern = new SparseMatrix(a);
+        order = SparseLU.orderColumns(a);
+        lastPivot = null;
+    }
+
+    // allocate the factors for a new numeric factorization, with room for capacity entries in each of L and U
+    protected void start(int capacity)
+    {
+        lp = new int[cols + 1];
+        up = new int[cols + 1];
+        li = new int[capacity];
+        lx = new double[width() * capacity];
+        ui = new int[capacity];
+        ux = new double[width() * capacity];
+        step = new int[cols];
+        pivotRow = new int[cols];
+        rowStep = new int[rows];
+        Arrays.fill(rowStep, -1);
+        steps = 0;
+
+        if (lastPivot == null)
+        {
+            lastPivot = new int[cols];
+            Arrays.fill(lastPivot, -1);
+        }
+    }
+
+    // pivot row for the kth column once x holds it reduced by L, -1 if it has no acceptable pivot
+    // max is the largest magnitude among the count rows not chosen yet, and norm that of the column before reduction
+    protected int choosePivot(int k, double[] x, int top, int[] reach, boolean[] visited, int count, double max,
+                              double norm)
+    {
+        int pivot = -1, r;
+
+        if (count == 0 || max <= 1e-12 * norm)
+            return -1;
+
+        int preferred = lastPivot[k];
+        if (preferred >= 0 && rowStep[preferred] == -1 && visited[preferred]
+            && magnitude(x, preferred) >= tolerance * max)
+            return preferred;
+
+        // among the acceptable candidates take the sparsest row, then the largest value
+        for (int t = top; t < rows; t++)
+        {
+            r = reach[t];
+            if (rowStep[r] != -1 || magnitude(x, r) < tolerance * max)
+                continue;
+            if (pivot == -1 || rowLength(r) < rowLength(pivot)
+                || (rowLength(r) == rowLength(pivot) && magnitude(x, r) > magnitude(x, pivot)))
+                pivot = r;
+        }
+        return pivot;
+    }
+
+    // depth first search from row r through the columns of L, placing rows in reach[top - 1], reach[top - 2], ...
+    protected int reach(int r, int top, int[] reach, int[] stack, int[] position, boolean[] visited)
+    {
+        int head = 0, s;
+        stack[0] = r;
+        visited[r] = true;
+        position[0] = rowStep[r] >= 0 ? lp[rowStep[r]] : 0;
+
+        while (head >= 0)
+        {
+            r = stack[head];
+            s = rowStep[r];
+
+            boolean done = true;
+            if (s >= 0)
+            {
+                for (int q = position[head]; q < lp[s + 1]; q++)
+                {
+                    int i = li[q];
+                    if (!visited[i])
+                    {
+                        position[head] = q + 1;
+                        visited[i] = true;
+                        stack[++head] = i;
+                        position[head] = rowStep[i] >= 0 ? lp[rowStep[i]] : 0;
+                        done = false;
+                        break;
+                    }
+                }
+            }
+
+            if (done)
+            {
+                head--;
+                reach[--top] = r;
+            }
+        }
+
+        return top;
+    }
+
+    protected void ensureL(int size)
+    {
+        if (size > li.length)
+        {
+            size = Math.max(size, 2 * li.length);
+            li = Arrays.copyOf(li, size);
+            lx = Arrays.copyOf(lx, width() * size);
+        }
+    }
+
+    protected void ensureU(int size)
+    {
+        if (size > ui.length)
+        {
+            size = Math.max(size, 2 * ui.length);
+            ui = Arrays.copyOf(ui, size);
+            ux = Arrays.copyOf(ux, width() * size);
+        }
+    }
+
+    // columns whose value is the same for every solution of a x = b
+    public boolean[] determined()
+    {
+        int w = width();
+        boolean[] res = new boolean[cols];
+        double[] z = new double[w * steps], v = new double[w * cols];
+
+        Arrays.fill(res, true);
+
+        // every free column spans a direction of the null space, which is left undetermined
+        for (int f = 0; f < cols; f++)
+        {
+            if (step[f] != -1)
+                continue;
+
+            Arrays.fill(z, 0);
+            Arrays.fill(v, 0);
+            for (int q = up[f]; q < up[f + 1]; q++)
+                for (int t = 0; t < w; t++)
+                    z[w * ui[q] + t] = -ux[w * q + t];
+
+            backSubstitute(z, v);
+            v[w * order[f]] = 1;
+
+            for (int j = 0; j < cols; j++)
+                if (magnitude(v, j) > 1e-9)
+                    res[j] = false;
+        }
+
+        return res;
+    }
+}
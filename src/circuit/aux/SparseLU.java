@@ -0,0 +1,770 @@
+package circuit.aux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A sparse LU factorization of a matrix with at least as many rows as independent columns.
+ * The symbolic analysis orders the columns to reduce fill-in, and depends only on the pattern of the matrix.
+ * The numeric factorization picks pivot rows by threshold partial pivoting and can be repeated for new values.
+ * Columns without an acceptable pivot are left free, and rows never chosen as pivots are checked for consistency.
+ * Changes to single entries can be applied as rank one updates of the solution, without factoring again.
+ * The factors can also be rounded to single precision, with every solution refined in double precision.
+ * Created by admin on 10/18/26.
+ */
+public class SparseLU extends SparseFactorization
+{
+    float[] lf, uf;         // values of L and U rounded to single precision, in place of lx and ux once rounded
+    int refinements;        // refinement steps taken by the last solve with the rounded factors
+    SparseMatrix matrix;    // matrix given to the last numeric factorization
+
+    // rank one updates since the last factorization, each one subtracting update[j] times x[updateCol[j]] from x
+    ArrayList<double[]> updates = new ArrayList<>();
+    IntList updateCols = new IntList();
+
+    static final int MAX_REFINEMENTS = 10;
+    static final double REFINED = 16 * Math.ulp(1.0); // residual relative to |a| |x| + |b| that counts as exact
+
+    public SparseLU() {}
+
+    public SparseLU(double tolerance)
+    {
+        this.tolerance = tolerance;
+    }
+
+    // share the symbolic analysis of other, to factor matrices of the same pattern independently
+    public SparseLU(SparseLU other)
+    {
+        share(other);
+    }
+
+    // methods
+
+    // number of rank one updates applied since the last factorization
+    public int getUpdates() { return updates.size(); }
+
+    public int getNonzeros()
+    {
+        return lp == null ? 0 : lp[steps] + up[cols];
+    }
+
+    // magnitude of the smallest pivot of the last factorization, 0 if there was none
+    public double getMinPivot()
+    {
+        double res = Double.POSITIVE_INFINITY;
+        for (int k = 0; up != null && k < cols; k++)
+            if (step[k] >= 0)
+                res = Math.min(res, Math.abs(pivot(k)));
+        return res == Double.POSITIVE_INFINITY ? 0 : res;
+    }
+
+    // magnitude of the largest pivot of the last factorization
+    public double getMaxPivot()
+    {
+        double res = 0;
+        for (int k = 0; up != null && k < cols; k++)
+            if (step[k] >= 0)
+                res = Math.max(res, Math.abs(pivot(k)));
+        return res;
+    }
+
+    // pivot of the kth column, the diagonal entry ending its column of U
+    private double pivot(int k)
+    {
+        return uf != null ? uf[up[k + 1] - 1] : ux[up[k + 1] - 1];
+    }
+
+    // whether the factors are held in single precision
+    public boolean isRounded() { return uf != null; }
+
+    public int getRefinements() { return refinements; }
+
+    // check whether the symbolic analysis can be reused for a
+    public boolean isAnalyzed(SparseMatrix a)
+    {
+        return pattern != null && pattern.samePattern(a);
+    }
+
+    // order columns of a by approximate minimum degree on the pattern of a^T a
+    public void analyze(SparseMatrix a)
+    {
+        analyzePattern(a);
+    }
+
+    public static int[] orderColumns(SparseMatrix a)
+    {
+        int m = a.getRows(), n = a.getCols();
+        int dense = Math.max(16, (int) (10 * Math.sqrt(n)));
+        ArrayList<int[]> elements = new ArrayList<>(m + n);
+        IntList[] adjacent = new IntList[n]; // elements containing each column
+        IntList weight = new IntList(), stamp = new IntList(); // size of each element outside the new one
+        int[] degree = new int[n], mark = new int[n], res = new int[n];
+        int[] head = new int[n + 1], next = new int[n], previous = new int[n]; // columns of each degree
+        int current = 0, size, d, min = 0;
+
+        for (int j = 0; j < n; j++)
+            adjacent[j] = new IntList();
+
+        // each row starts out as an element, except dense rows which would make everything adjacent
+        for (int i = 0; i < m; i++)
+        {
+            int[] element = a.getLength(i) <= dense ? a.support(i) : new int[0];
+            elements.add(element);
+            weight.add(0);
+            stamp.add(0);
+            for (int j : element)
+                adjacent[j].add(i);
+        }
+
+        // initial degrees are the sizes of the rows of a^T a
+        for (int j = 0; j < n; j++)
+        {
+            mark[j] = ++current;
+            for (int t = 0; t < adjacent[j].size; t++)
+            {
+                for (int i : elements.get(adjacent[j].get(t)))
+                {
+                    if (mark[i] != current)
+                    {
+                        mark[i] = current;
+                        degree[j]++;
+                    }
+                }
+            }
+        }
+
+        Arrays.fill(head, -1);
+        for (int j = 0; j < n; j++)
+            insert(j, degree[j], head, next, previous);
+
+        for (int k = 0; k < n; k++)
+        {
+            // take the column of least degree
+            while (head[min] == -1)
+                min++;
+            int p = head[min];
+            remove(p, degree[p], head, next, previous);
+
+            res[k] = p;
+
+            // merge the elements containing p into a new element
+            IntList merged = new IntList();
+            mark[p] = ++current;
+            for (int t = 0; t < adjacent[p].size; t++)
+            {
+                int e = adjacent[p].get(t);
+                if (elements.get(e) == null)
+                    continue;
+                for (int j : elements.get(e))
+                {
+                    if (mark[j] != current)
+                    {
+                        mark[j] = current;
+                        merged.add(j);
+                    }
+                }
+                elements.set(e, null); // absorbed
+            }
+            adjacent[p] = null;
+
+            int[] element = merged.toArray();
+            int e = elements.size();
+            elements.add(element);
+            weight.add(0);
+            stamp.add(0);
+
+            // for every other element adjacent to the new one, count its columns outside the new one
+            current++;
+            for (int j : element)
+            {
+                for (int t = 0; t < adjacent[j].size; t++)
+                {
+                    int f = adjacent[j].get(t);
+                    if (elements.get(f) == null)
+                        continue;
+                    if (stamp.get(f) != current)
+                    {
+                        stamp.data[f] = current;
+                        weight.data[f] = elements.get(f).length - 1;
+                    }
+                    else
+                        weight.data[f]--;
+                }
+            }
+
+            // update the approximate degrees of the columns in the new element
+            for (int j : element)
+            {
+                IntList list = adjacent[j];
+                d = element.length - 1;
+                size = 0;
+                for (int t = 0; t < list.size; t++)
+                {
+                    int f = list.get(t);
+                    if (elements.get(f) == null)
+                        continue;
+                    if (weight.get(f) == 0)
+                    {
+                        // f is contained in the new element
+                        elements.set(f, null);
+                        continue;
+                    }
+                    d += weight.get(f);
+                    list.data[size++] = f;
+                }
+                list.size = size;
+                list.add(e);
+
+                remove(j, degree[j], head, next, previous);
+                degree[j] = Math.min(Math.min(d, degree[j] + element.length - 1), n - k - 1);
+                insert(j, degree[j], head, next, previous);
+                min = Math.min(min, degree[j]);
+            }
+        }
+
+        return res;
+    }
+
+    private static void insert(int j, int d, int[] head, int[] next, int[] previous)
+    {
+        next[j] = head[d];
+        previous[j] = -1;
+        if (head[d] != -1)
+            previous[head[d]] = j;
+        head[d] = j;
+    }
+
+    private static void remove(int j, int d, int[] head, int[] next, int[] previous)
+    {
+        if (previous[j] != -1)
+            next[previous[j]] = next[j];
+        else
+            head[d] = next[j];
+        if (next[j] != -1)
+            previous[next[j]] = previous[j];
+    }
+
+    // compute the numeric factorization of a, which must have the pattern given to analyze
+    // a is kept for checking solutions after updates, so it should not be changed afterwards
+    public void factor(SparseMatrix a)
+    {
+        SparseMatrix columns = a.transpose();
+        double[] x = new double[rows];
+        int[] reach = new int[rows], stack = new int[rows], position = new int[rows];
+        boolean[] visited = new boolean[rows];
+        int top, c, s, r, pivot, len, count;
+        double max, norm, value;
+
+        start(2 * a.getNonzeros() + cols + 16);
+        matrix = a;
+        lf = uf = null;
+        updates.clear();
+        updateCols.size = 0;
+
+        for (int k = 0; k < cols; k++)
+        {
+            c = order[k];
+
+            // find the rows reachable from the pattern of column c through L, in topological order
+            top = rows;
+            for (int t = 0; t < columns.getLength(c); t++)
+            {
+                r = columns.getIndex(c, t);
+                if (!visited[r])
+                    top = reach(r, top, reach, stack, position, visited);
+            }
+
+            // scatter column c
+            norm = 0;
+            for (int t = 0; t < columns.getLength(c); t++)
+            {
+                x[columns.getIndex(c, t)] = columns.getValue(c, t);
+                norm = Math.max(norm, Math.abs(columns.getValue(c, t)));
+            }
+
+            // sparse triangular solve with the columns of L computed so far
+            max = 0;
+            count = 0;
+            for (int t = top; t < rows; t++)
+            {
+                r = reach[t];
+                s = rowStep[r];
+                if (s >= 0)
+                {
+                    value = x[r];
+                    for (int q = lp[s]; q < lp[s + 1]; q++)
+                        x[li[q]] -= lx[q] * value;
+                }
+                else
+                {
+                    max = Math.max(max, Math.abs(x[r]));
+                    count++;
+                }
+            }
+
+            pivot = choosePivot(k, x, top, reach, visited, count, max, norm);
+
+            // store column k of U, with the diagonal last
+            len = up[k];
+            ensureU(len + rows - top + 1);
+            for (int t = top; t < rows; t++)
+            {
+                r = reach[t];
+                if (rowStep[r] >= 0 && x[r] != 0)
+                {
+                    ui[len] = rowStep[r];
+                    ux[len++] = x[r];
+                }
+            }
+
+            if (pivot == -1)
+                step[k] = -1;
+            else
+            {
+                s = steps++;
+                step[k] = s;
+                pivotRow[s] = pivot;
+                rowStep[pivot] = s;
+                lastPivot[k] = pivot;
+
+                ui[len] = s;
+                ux[len++] = x[pivot];
+
+                // store column s of L
+                int lenL = lp[s];
+                ensureL(lenL + rows - top);
+                for (int t = top; t < rows; t++)
+                {
+                    r = reach[t];
+                    if (rowStep[r] == -1 && x[r] != 0)
+                    {
+                        li[lenL] = r;
+                        lx[lenL++] = x[r] / x[pivot];
+                    }
+                }
+                lp[s + 1] = lenL;
+            }
+            up[k + 1] = len;
+
+            // clear workspace
+            for (int t = top; t < rows; t++)
+            {
+                x[reach[t]] = 0;
+                visited[reach[t]] = false;
+            }
+        }
+    }
+
+    // solve a x = b, setting free columns to 0; returns null if b is inconsistent with the rows left out
+    public double[] solve(double[] b)
+    {
+        if (uf != null)
+        {
+            double[] res = refine(b);
+            if (res != null)
+                return res;
+
+            // single precision was not enough for this matrix
+            factor(matrix);
+        }
+
+        if (!updates.isEmpty())
+        {
+            double[] res = apply(b);
+
+            // the rows left out were not updated, so they can be checked against the factored matrix
+            for (int i = 0; i < rows; i++)
+                if (rowStep[i] == -1 && Math.abs(b[i] - dot(i, res)) > 1e-9 * (1 + Math.abs(b[i])))
+                    return null;
+            return res;
+        }
+
+
+        double[] work = Arrays.copyOf(b, rows), z = new double[steps], res = new double[cols];
+        double scale = 0, value;
+
+        for (double v : b)
+            scale = Math.max(scale, Math.abs(v));
+
+        // forward substitution with L
+        for (int s = 0; s < steps; s++)
+        {
+            value = work[pivotRow[s]];
+            z[s] = value;
+            for (int q = lp[s]; q < lp[s + 1]; q++)
+                work[li[q]] -= lx[q] * value;
+        }
+
+        // rows that were not chosen as pivots must be satisfied already
+        for (int i = 0; i < rows; i++)
+            if (rowStep[i] == -1 && Math.abs(work[i]) > 1e-9 * (1 + scale))
+                return null;
+
+        backSubstitute(z, res);
+        return res;
+    }
+
+    // solve a x = b for count right-hand sides at once, stored interleaved as b[i * count + r]
+    // the solutions are interleaved the same way, and set to NaN for right-hand sides inconsistent with the rows left out
+    public double[] solve(double[] b, int count)
+    {
+        if (uf != null)
+            factor(matrix);
+
+        double[] work = Arrays.copyOf(b, rows * count), z = new double[steps * count],
+                 res = new double[cols * count], scale = new double[count];
+        boolean[] inconsistent = new boolean[count];
+        int p, t, c;
+        double l, value;
+
+        for (int i = 0; i < rows; i++)
+            for (int r = 0; r < count; r++)
+                scale[r] = Math.max(scale[r], Math.abs(b[i * count + r]));
+
+        // forward substitution with L, one column of L for all right-hand sides
+        for (int s = 0; s < steps; s++)
+        {
+            p = pivotRow[s] * count;
+            System.arraycopy(work, p, z, s * count, count);
+            for (int q = lp[s]; q < lp[s + 1]; q++)
+            {
+                t = li[q] * count;
+                l = lx[q];
+                for (int r = 0; r < count; r++)
+                    work[t + r] -= l * z[s * count + r];
+            }
+        }
+
+        if (updates.isEmpty())
+            for (int i = 0; i < rows; i++)
+                if (rowStep[i] == -1)
+                    for (int r = 0; r < count; r++)
+                        if (Math.abs(work[i * count + r]) > 1e-9 * (1 + scale[r]))
+                            inconsistent[r] = true;
+
+        // back substitution with U
+        for (int k = cols - 1; k >= 0; k--)
+        {
+            if (step[k] == -1)
+                continue;
+
+            p = step[k] * count;
+            c = order[k] * count;
+            value = ux[up[k + 1] - 1];
+            for (int r = 0; r < count; r++)
+                res[c + r] = z[p + r] / value;
+            for (int q = up[k]; q < up[k + 1] - 1; q++)
+            {
+                t = ui[q] * count;
+                l = ux[q];
+                for (int r = 0; r < count; r++)
+                    z[t + r] -= l * res[c + r];
+            }
+        }
+
+        if (!updates.isEmpty())
+        {
+            for (int j = 0; j < updates.size(); j++)
+            {
+                double[] w = updates.get(j);
+                c = updateCols.get(j) * count;
+                for (int r = 0; r < count; r++)
+                {
+                    value = res[c + r];
+                    if (value != 0)
+                        for (int i = 0; i < cols; i++)
+                            res[i * count + r] -= w[i] * value;
+                }
+            }
+
+            for (int i = 0; i < rows; i++)
+            {
+                if (rowStep[i] != -1)
+                    continue;
+                for (int r = 0; r < count; r++)
+                {
+                    value = b[i * count + r];
+                    for (int k = 0; k < matrix.getLength(i); k++)
+                        value -= matrix.getValue(i, k) * res[matrix.getIndex(i, k) * count + r];
+                    if (Math.abs(value) > 1e-9 * (1 + Math.abs(b[i * count + r])))
+                        inconsistent[r] = true;
+                }
+            }
+        }
+
+        for (int r = 0; r < count; r++)
+            if (inconsistent[r])
+                for (int i = 0; i < cols; i++)
+                    res[i * count + r] = Double.NaN;
+
+        return res;
+    }
+
+    // solve with the factorization and every update, without checking the rows left out
+    private double[] apply(double[] b)
+    {
+        double[] work = Arrays.copyOf(b, rows), z = new double[steps], res = new double[cols];
+        double value;
+
+        for (int s = 0; s < steps; s++)
+        {
+            value = work[pivotRow[s]];
+            z[s] = value;
+            for (int q = lp[s]; q < lp[s + 1]; q++)
+                work[li[q]] -= lx[q] * value;
+        }
+
+        backSubstitute(z, res);
+
+        // Sherman-Morrison corrections, in the order they were applied
+        for (int j = 0; j < updates.size(); j++)
+        {
+            double[] w = updates.get(j);
+            value = res[updateCols.get(j)];
+            if (value != 0)
+                for (int t = 0; t < cols; t++)
+                    res[t] -= w[t] * value;
+        }
+
+        return res;
+    }
+
+    // product of row i of the factored matrix with x
+    private double dot(int i, double[] x)
+    {
+        double res = 0;
+        for (int k = 0; k < matrix.getLength(i); k++)
+            res += matrix.getValue(i, k) * x[matrix.getIndex(i, k)];
+        return res;
+    }
+
+    // add delta to the entry of the factored matrix at row i and column j
+    // returns false if the change cannot be applied as an update, in which case the matrix should be factored again
+    public boolean update(int i, int j, double delta)
+    {
+        int k = 0;
+
+        // only rows and columns that took part in the elimination can be updated, in double precision
+        if (rowStep[i] == -1 || uf != null)
+            return false;
+        while (order[k] != j)
+            k++;
+        if (step[k] == -1)
+            return false;
+
+        // w = (a + previous updates)^-1 delta e_i
+        double[] u = new double[rows];
+        u[i] = delta;
+        double[] w = apply(u);
+
+        double denominator = 1 + w[j];
+        if (Math.abs(denominator) < 1e-8)
+            return false;
+
+        for (int t = 0; t < cols; t++)
+            w[t] /= denominator;
+
+        updates.add(w);
+        updateCols.add(j);
+        return true;
+    }
+
+    protected int width()
+    {
+        return 1;
+    }
+
+    protected double magnitude(double[] x, int i)
+    {
+        return Math.abs(x[i]);
+    }
+
+    protected int rowLength(int r)
+    {
+        return matrix.getLength(r);
+    }
+
+    protected void backSubstitute(double[] z, double[] res)
+    {
+        double value;
+
+        for (int k = cols - 1; k >= 0; k--)
+        {
+            if (step[k] == -1)
+                continue;
+
+            value = z[step[k]] / ux[up[k + 1] - 1];
+            res[order[k]] = value;
+            for (int q = up[k]; q < up[k + 1] - 1; q++)
+                z[ui[q]] -= ux[q] * value;
+        }
+    }
+
+    // keep the factors in single precision only, halving the memory a solve goes through
+    // solves refine their result in double precision against the factored matrix, and factor it again in double
+    // precision if that does not converge, which is also how rows left out are found inconsistent
+    // only a factorization without free columns or updates can be rounded
+    public void round()
+    {
+        if (steps != cols || !updates.isEmpty())
+            throw new IllegalStateException("Only a factorization without free columns or updates can be rounded");
+
+        lf = new float[lp[steps]];
+        for (int q = 0; q < lf.length; q++)
+            lf[q] = (float) lx[q];
+        uf = new float[up[cols]];
+        for (int q = 0; q < uf.length; q++)
+            uf[q] = (float) ux[q];
+        lx = ux = null;
+    }
+
+    // solve with the rounded factors, refining x by the solutions for the residual b - a x computed in double
+    // returns null if the residual stops shrinking before it is down to rounding
+    private double[] refine(double[] b)
+    {
+        double[] x = substitute(b), r = new double[rows];
+        double norm = 0, scale = 0, last = Double.POSITIVE_INFINITY, residual, size, value;
+
+        for (int i = 0; i < rows; i++)
+        {
+            value = 0;
+            for (int k = 0; k < matrix.getLength(i); k++)
+                value += Math.abs(matrix.getValue(i, k));
+            norm = Math.max(norm, value);
+            scale = Math.max(scale, Math.abs(b[i]));
+        }
+
+        for (refinements = 0; refinements <= MAX_REFINEMENTS; refinements++)
+        {
+            residual = size = 0;
+            for (int i = 0; i < rows; i++)
+            {
+                r[i] = b[i] - dot(i, x);
+                residual = Math.max(residual, Math.abs(r[i]));
+            }
+            for (double v : x)
+                size = Math.max(size, Math.abs(v));
+
+            if (residual <= REFINED * (norm * size + scale))
+                return x;
+            if (!(residual < 0.5 * last))
+                return null;
+            last = residual;
+
+            double[] d = substitute(r);
+            for (int j = 0; j < cols; j++)
+                x[j] += d[j];
+        }
+
+        return null;
+    }
+
+    // forward and back substitution with the rounded factors, accumulating in double
+    private double[] substitute(double[] b)
+    {
+        double[] work = Arrays.copyOf(b, rows), z = new double[steps], res = new double[cols];
+        double value;
+
+        for (int s = 0; s < steps; s++)
+        {
+            value = work[pivotRow[s]];
+            z[s] = value;
+            for (int q = lp[s]; q < lp[s + 1]; q++)
+                work[li[q]] -= lf[q] * value;
+        }
+
+        for (int k = cols - 1; k >= 0; k--)
+        {
+            value = z[step[k]] / uf[up[k + 1] - 1];
+            res[order[k]] = value;
+            for (int q = up[k]; q < up[k + 1] - 1; q++)
+                z[ui[q]] -= uf[q] * value;
+        }
+
+        return res;
+    }
+
+    // write the analysis and factorization to out, leaving out the factored matrix
+    public void write(BinaryOutput out) throws IOException
+    {
+        if (!updates.isEmpty())
+            throw new IllegalStateException("Factorization has pending updates");
+        if (uf != null)
+            throw new IllegalStateException("Factorization is rounded");
+
+        out.putInt(rows);
+        out.putInt(cols);
+        out.putInt(steps);
+        out.putDouble(tolerance);
+        out.putInts(order, 0, cols);
+        out.putInts(lp, 0, steps + 1);
+        out.putInts(li, 0, lp[steps]);
+        out.putDoubles(lx, 0, lp[steps]);
+        out.putInts(up, 0, cols + 1);
+        out.putInts(ui, 0, up[cols]);
+        out.putDoubles(ux, 0, up[cols]);
+        out.putInts(step, 0, cols);
+        out.putInts(pivotRow, 0, steps);
+        out.putInts(rowStep, 0, rows);
+        out.putInts(lastPivot, 0, cols);
+    }
+
+    // read a factorization written by write, of the matrix a
+    public static SparseLU read(BinaryInput in, SparseMatrix a) throws IOException
+    {
+        SparseLU res = new SparseLU();
+        int rows = in.getInt(), cols = in.getInt(), steps = in.getInt();
+
+        if (rows != a.getRows() || cols != a.getCols())
+            throw new IOException("Factorization does not match the matrix");
+
+        res.rows = rows;
+        res.cols = cols;
+        res.steps = steps;
+        res.tolerance = in.getDouble();
+        res.pattern = res.matrix = a;
+
+        res.order = new int[cols];
+        in.getInts(res.order, 0, cols);
+        res.lp = new int[cols + 1];
+        in.getInts(res.lp, 0, steps + 1);
+        res.li = new int[res.lp[steps]];
+        res.lx = new double[res.lp[steps]];
+        in.getInts(res.li, 0, res.li.length);
+        in.getDoubles(res.lx, 0, res.lx.length);
+        res.up = new int[cols + 1];
+        in.getInts(res.up, 0, cols + 1);
+        res.ui = new int[res.up[cols]];
+        res.ux = new double[res.up[cols]];
+        in.getInts(res.ui, 0, res.ui.length);
+        in.getDoubles(res.ux, 0, res.ux.length);
+        res.step = new int[cols];
+        in.getInts(res.step, 0, cols);
+        res.pivotRow = new int[cols];
+        in.getInts(res.pivotRow, 0, steps);
+        res.rowStep = new int[rows];
+        in.getInts(res.rowStep, 0, rows);
+        res.lastPivot = new int[cols];
+        in.getInts(res.lastPivot, 0, cols);
+        return res;
+    }
+
+    // growable list of ints
+    static class IntList
+    {
+        int[] data = new int[4];
+        int size;
+
+        void add(int x)
+        {
+            if (size == data.length)
+                data = Arrays.copyOf(data, 2 * size);
+            data[size++] = x;
+        }
+
+        int get(int t) { return data[t]; }
+
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+}
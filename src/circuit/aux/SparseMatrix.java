@@ -0,0 +1,533 @@
+package circuit.aux;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A resizable sparse matrix storing only the nonzero entries of each row, sorted by column.
+ * Every row is a slice of two shared arrays of column indices and values, which grow as needed.
+ * Created by admin on 10/18/26.
+ */
+public class SparseMatrix
+{
+    int rows, cols;
+    int[] start, length, capacity; // slice of index and value holding each row
+    int[] index;
+    double[] value;
+    int used, garbage; // slots taken from the end of index, and slots lost to rows that moved
+
+    // scratch space for merging rows
+    int[] mergeIndex = new int[0];
+    double[] mergeValue = new double[0];
+
+    public SparseMatrix()
+    {
+        this(0, 0);
+    }
+
+    public SparseMatrix(int rows, int cols)
+    {
+        this.rows = rows;
+        this.cols = cols;
+
+        start = new int[Math.max(rows, 4)];
+        length = new int[start.length];
+        capacity = new int[start.length];
+        index = new int[16];
+        value = new double[16];
+    }
+
+    public SparseMatrix(SparseMatrix other)
+    {
+        rows = other.rows;
+        cols = other.cols;
+
+        // compact copy
+        int nonzeros = other.getNonzeros();
+        start = new int[Math.max(rows, 4)];
+        length = Arrays.copyOf(other.length, start.length);
+        capacity = Arrays.copyOf(other.length, start.length);
+        index = new int[Math.max(nonzeros, 16)];
+        value = new double[index.length];
+
+        for (int i = 0; i < rows; i++)
+        {
+            start[i] = used;
+            System.arraycopy(other.index, other.start[i], index, used, length[i]);
+            System.arraycopy(other.value, other.start[i], value, used, length[i]);
+            used += length[i];
+        }
+    }
+
+    // methods
+
+    public int getRows() { return rows; }
+
+    public int getCols() { return cols; }
+
+    public int getNonzeros()
+    {
+        int res = 0;
+        for (int i = 0; i < rows; i++)
+            res += length[i];
+        return res;
+    }
+
+    // number of nonzero entries in row i
+    public int getLength(int i) { return length[i]; }
+
+    // column of the kth nonzero entry in row i
+    public int getIndex(int i, int k) { return index[start[i] + k]; }
+
+    // value of the kth nonzero entry in row i
+    public double getValue(int i, int k) { return value[start[i] + k]; }
+
+    public String toString()
+    {
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < rows; i++)
+        {
+            res.append('{');
+            for (int k = 0; k < length[i]; k++)
+            {
+                if (k > 0)
+                    res.append(", ");
+                res.append(getIndex(i, k)).append('=').append(getValue(i, k));
+            }
+            res.append("}\n");
+        }
+        return res.toString();
+    }
+
+    public void resize(int di, int dj)
+    {
+        rows += di;
+        cols += dj;
+
+        if (rows > start.length)
+        {
+            int size = Math.max(rows, 2 * start.length);
+            start = Arrays.copyOf(start, size);
+            length = Arrays.copyOf(length, size);
+            capacity = Arrays.copyOf(capacity, size);
+        }
+
+        // new rows are empty, removed rows give up their slices
+        if (di > 0)
+            for (int i = rows - di; i < rows; i++)
+                release(i);
+        else
+            for (int i = rows; i < rows - di; i++)
+                release(i);
+
+        // drop entries of removed columns
+        if (dj < 0)
+            for (int i = 0; i < rows; i++)
+                length[i] = find(i, cols);
+    }
+
+    // position of column j within row i, or the position it would be inserted at
+    private int find(int i, int j)
+    {
+        int pos = Arrays.binarySearch(index, start[i], start[i] + length[i], j);
+        return pos >= 0 ? pos - start[i] : -pos - 1 - start[i];
+    }
+
+    public double get(int i, int j)
+    {
+        if (i == -1)
+            i += rows;
+        if (j == -1)
+            j += cols;
+
+        if (i < 0 || j < 0 || rows <= i || cols <= j)
+            return 0;
+
+        int k = find(i, j);
+        if (k < length[i] && index[start[i] + k] == j)
+            return value[start[i] + k];
+        return 0;
+    }
+
+    public void set(int i, int j, double x)
+    {
+        if (i == -1)
+            i += rows;
+        if (j == -1)
+            j += cols;
+
+        if (i < 0 || j < 0)
+            return;
+
+        // resize if necessary
+        if (i >= rows || j >= cols)
+            resize(Math.max(i + 1 - rows, 0), Math.max(j + 1 - cols, 0));
+
+        int k = find(i, j), pos = start[i] + k;
+
+        if (k < length[i] && index[pos] == j)
+        {
+            if (x != 0)
+                value[pos] = x;
+            else
+            {
+                // remove entry
+                System.arraycopy(index, pos + 1, index, pos, length[i] - k - 1);
+                System.arraycopy(value, pos + 1, value, pos, length[i] - k - 1);
+                length[i]--;
+            }
+        }
+        else if (x != 0)
+        {
+            // insert entry
+            reserve(i, length[i] + 1);
+            pos = start[i] + k;
+            System.arraycopy(index, pos, index, pos + 1, length[i] - k);
+            System.arraycopy(value, pos, value, pos + 1, length[i] - k);
+            index[pos] = j;
+            value[pos] = x;
+            length[i]++;
+        }
+    }
+
+    // make sure row i has room for size entries
+    private void reserve(int i, int size)
+    {
+        if (size <= capacity[i])
+            return;
+
+        int newCapacity = Math.max(size, Math.max(2 * capacity[i], 4));
+
+        // the last slice can grow in place
+        if (capacity[i] > 0 && start[i] + capacity[i] == used)
+        {
+            grow(used + newCapacity - capacity[i]);
+            used += newCapacity - capacity[i];
+            capacity[i] = newCapacity;
+            return;
+        }
+
+        if (garbage > used / 2)
+            compact();
+
+        grow(used + newCapacity);
+        System.arraycopy(index, start[i], index, used, length[i]);
+        System.arraycopy(value, start[i], value, used, length[i]);
+
+        garbage += capacity[i];
+        start[i] = used;
+        capacity[i] = newCapacity;
+        used += newCapacity;
+    }
+
+    private void grow(int size)
+    {
+        if (size > index.length)
+        {
+            size = Math.max(size, 2 * index.length);
+            index = Arrays.copyOf(index, size);
+            value = Arrays.copyOf(value, size);
+        }
+    }
+
+    // give up the slice of row i
+    private void release(int i)
+    {
+        garbage += capacity[i];
+        start[i] = length[i] = capacity[i] = 0;
+    }
+
+    // move all rows to the front of the arrays, dropping the unused slots
+    public void compact()
+    {
+        int[] newIndex = new int[Math.max(getNonzeros(), 16)];
+        double[] newValue = new double[newIndex.length];
+        int pos = 0;
+
+        for (int i = 0; i < rows; i++)
+        {
+            System.arraycopy(index, start[i], newIndex, pos, length[i]);
+            System.arraycopy(value, start[i], newValue, pos, length[i]);
+            start[i] = pos;
+            capacity[i] = length[i];
+            pos += length[i];
+        }
+
+        index = newIndex;
+        value = newValue;
+        used = pos;
+        garbage = 0;
+    }
+
+    // write the matrix to out, without the unused slots
+    public void write(BinaryOutput out) throws IOException
+    {
+        out.putInt(rows);
+        out.putInt(cols);
+        out.putInts(length, 0, rows);
+        for (int i = 0; i < rows; i++)
+            out.putInts(index, start[i], length[i]);
+        for (int i = 0; i < rows; i++)
+            out.putDoubles(value, start[i], length[i]);
+    }
+
+    // read a matrix written by write
+    public static SparseMatrix read(BinaryInput in) throws IOException
+    {
+        SparseMatrix res = new SparseMatrix(in.getInt(), in.getInt());
+
+        in.getInts(res.length, 0, res.rows);
+        for (int i = 0; i < res.rows; i++)
+        {
+            res.start[i] = res.used;
+            res.capacity[i] = res.length[i];
+            res.used += res.length[i];
+        }
+
+        res.index = new int[Math.max(res.used, 16)];
+        res.value = new double[res.index.length];
+        in.getInts(res.index, 0, res.used);
+        in.getDoubles(res.value, 0, res.used);
+        return res;
+    }
+
+    public double[] getRow(int i)
+    {
+        if (i >= rows)
+            return null;
+
+        double[] res = new double[cols];
+        for (int k = 0; k < length[i]; k++)
+            res[getIndex(i, k)] = getValue(i, k);
+        return res;
+    }
+
+    // return column indices of the nonzero entries in row i
+    public int[] support(int i)
+    {
+        return Arrays.copyOfRange(index, start[i], start[i] + length[i]);
+    }
+
+    // assuming row.length = cols
+    public void addRow(int i, double[] row)
+    {
+        for (int j = 0; j < Math.min(row.length, cols); j++)
+            if (row[j] != 0)
+                set(i, j, get(i, j) + row[j]);
+    }
+
+    // add factor times row k to row i
+    public void addRow(int i, int k, double factor)
+    {
+        if (i == k)
+        {
+            multiplyRow(i, 1 + factor);
+            return;
+        }
+
+        addRow(i, index, value, start[k], length[k], factor);
+    }
+
+    // add factor times the given sparse row, sorted by column, to row i
+    public void addRow(int i, int[] indices, double[] values, int offset, int size, double factor)
+    {
+        if (size == 0 || factor == 0)
+            return;
+
+        // merge the two rows into scratch space
+        int n = length[i] + size;
+        if (mergeIndex.length < n)
+        {
+            mergeIndex = new int[2 * n];
+            mergeValue = new double[2 * n];
+        }
+
+        int p = start[i], pEnd = p + length[i], q = offset, qEnd = offset + size, len = 0;
+        double x;
+
+        while (p < pEnd || q < qEnd)
+        {
+            if (q == qEnd || (p < pEnd && index[p] < indices[q]))
+            {
+                mergeIndex[len] = index[p];
+                mergeValue[len++] = value[p++];
+            }
+            else if (p == pEnd || indices[q] < index[p])
+            {
+                mergeIndex[len] = indices[q];
+                mergeValue[len++] = factor * values[q++];
+            }
+            else
+            {
+                x = value[p] + factor * values[q];
+                if (x != 0)
+                {
+                    mergeIndex[len] = index[p];
+                    mergeValue[len++] = x;
+                }
+                p++;
+                q++;
+            }
+        }
+
+        // copy back into row i
+        reserve(i, len);
+        System.arraycopy(mergeIndex, 0, index, start[i], len);
+        System.arraycopy(mergeValue, 0, value, start[i], len);
+        length[i] = len;
+    }
+
+    public void multiplyRow(int i, double x)
+    {
+        if (x == 0)
+        {
+            length[i] = 0;
+            return;
+        }
+
+        for (int p = start[i]; p < start[i] + length[i]; p++)
+            value[p] *= x;
+    }
+
+    // replace row i with the given sparse row, sorted by column
+    public void setRow(int i, int[] indices, double[] values, int size)
+    {
+        length[i] = 0;
+        addRow(i, indices, values, 0, size, 1);
+    }
+
+    // create new empty row at ith position
+    public void createRow(int i)
+    {
+        if (i == -1 || i > rows)
+            i = rows;
+
+        resize(1, 0);
+
+        // shift rows down, moving the new empty slice to i
+        int s = start[rows - 1], c = capacity[rows - 1];
+        System.arraycopy(start, i, start, i + 1, rows - 1 - i);
+        System.arraycopy(length, i, length, i + 1, rows - 1 - i);
+        System.arraycopy(capacity, i, capacity, i + 1, rows - 1 - i);
+        start[i] = s;
+        length[i] = 0;
+        capacity[i] = c;
+    }
+
+    // adjoin sparse row, sorted by column, at ith position
+    public void adjoinRow(int i, int[] indices, double[] values, int size)
+    {
+        if (i == -1 || i > rows)
+            i = rows;
+
+        createRow(i);
+        addRow(i, indices, values, 0, size, 1);
+    }
+
+    public void deleteRow(int i)
+    {
+        if (i >= rows)
+            return;
+
+        garbage += capacity[i];
+
+        // shift rows up
+        System.arraycopy(start, i + 1, start, i, rows - 1 - i);
+        System.arraycopy(length, i + 1, length, i, rows - 1 - i);
+        System.arraycopy(capacity, i + 1, capacity, i, rows - 1 - i);
+        start[rows - 1] = length[rows - 1] = capacity[rows - 1] = 0;
+
+        rows--;
+    }
+
+    // create new empty column at jth position
+    public void createColumn(int j)
+    {
+        if (j == -1 || j > cols)
+            j = cols;
+
+        resize(0, 1);
+
+        for (int i = 0; i < rows; i++)
+            for (int p = start[i] + find(i, j); p < start[i] + length[i]; p++)
+                index[p]++;
+    }
+
+    public void deleteColumn(int j)
+    {
+        if (j >= cols)
+            return;
+
+        for (int i = 0; i < rows; i++)
+        {
+            set(i, j, 0);
+            for (int p = start[i] + find(i, j); p < start[i] + length[i]; p++)
+                index[p]--;
+        }
+
+        cols--;
+    }
+
+    public SparseMatrix transpose()
+    {
+        SparseMatrix res = new SparseMatrix(cols, rows);
+        int[] counts = new int[cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int p = start[i]; p < start[i] + length[i]; p++)
+                counts[index[p]]++;
+
+        res.grow(used - garbage);
+        for (int j = 0; j < cols; j++)
+        {
+            res.start[j] = res.used;
+            res.capacity[j] = counts[j];
+            res.used += counts[j];
+        }
+
+        // rows are visited in order, so every column comes out sorted
+        for (int i = 0; i < rows; i++)
+        {
+            for (int p = start[i]; p < start[i] + length[i]; p++)
+            {
+                int j = index[p], q = res.start[j] + res.length[j]++;
+                res.index[q] = i;
+                res.value[q] = value[p];
+            }
+        }
+
+        return res;
+    }
+
+    public double[] transform(double[] vector)
+    {
+        if (vector.length != cols)
+            return null;
+
+        double[] res = new double[rows];
+
+        for (int i = 0; i < rows; i++)
+            for (int p = start[i]; p < start[i] + length[i]; p++)
+                res[i] += value[p] * vector[index[p]];
+
+        return res;
+    }
+
+    // check whether both matrices have nonzero entries at the same positions
+    public boolean samePattern(SparseMatrix other)
+    {
+        if (rows != other.rows || cols != other.cols)
+            return false;
+
+        for (int i = 0; i < rows; i++)
+        {
+            if (length[i] != other.length[i])
+                return false;
+            for (int k = 0; k < length[i]; k++)
+                if (index[start[i] + k] != other.index[other.start[i] + k])
+                    return false;
+        }
+
+        return true;
+    }
+}
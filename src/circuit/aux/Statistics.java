@@ -0,0 +1,135 @@
+package circuit.aux;
+
+import java.util.Arrays;
+
+/**
+ * Running statistics of a stream of samples, kept in constant memory.
+ * The mean and variance are updated by Welford's method, and statistics of separate streams can be merged.
+ * NaN samples are only counted, and a histogram over a fixed range can be kept as well.
+ * Created by admin on 10/18/26.
+ */
+public class Statistics
+{
+    long count, missing; // samples taken into account, and NaN samples left out
+    double mean, squares, // mean and sum of squared differences from the mean
+           min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+    double low, high;     // range of the histogram
+    long[] bins;          // histogram, with samples below and above its range counted separately
+    long below, above;
+
+    public Statistics() {}
+
+    public Statistics(double low, double high, int bins)
+    {
+        if (!(low < high) || bins <= 0)
+            throw new IllegalArgumentException("Invalid histogram");
+
+        this.low = low;
+        this.high = high;
+        this.bins = new long[bins];
+    }
+
+    // empty statistics with the same histogram range as other
+    public Statistics(Statistics other)
+    {
+        low = other.low;
+        high = other.high;
+        if (other.bins != null)
+            bins = new long[other.bins.length];
+    }
+
+    // methods
+
+    public void add(double x)
+    {
+        if (Double.isNaN(x))
+        {
+            missing++;
+            return;
+        }
+
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        squares += delta * (x - mean);
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+
+        if (bins != null)
+        {
+            if (x < low)
+                below++;
+            else if (x >= high)
+                above++;
+            else
+                bins[Math.min((int) ((x - low) / (high - low) * bins.length), bins.length - 1)]++;
+        }
+    }
+
+    // take the samples of other into account, which has to have the same histogram
+    public void merge(Statistics other)
+    {
+        if ((bins == null) != (other.bins == null) || bins != null
+                && (bins.length != other.bins.length || low != other.low || high != other.high))
+            throw new IllegalArgumentException("Histograms do not match");
+
+        missing += other.missing;
+        if (other.count == 0)
+            return;
+
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        squares += other.squares + delta * delta * count / total * other.count;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        if (bins != null)
+        {
+            for (int k = 0; k < bins.length; k++)
+                bins[k] += other.bins[k];
+            below += other.below;
+            above += other.above;
+        }
+    }
+
+    public long getCount() { return count; }
+
+    public long getMissing() { return missing; }
+
+    public double getMean() { return count == 0 ? Double.NaN : mean; }
+
+    // sample variance
+    public double getVariance() { return count < 2 ? Double.NaN : squares / (count - 1); }
+
+    public double getStandardDeviation() { return Math.sqrt(getVariance()); }
+
+    public double getMin() { return count == 0 ? Double.NaN : min; }
+
+    public double getMax() { return count == 0 ? Double.NaN : max; }
+
+    public long[] getHistogram() { return bins == null ? null : bins.clone(); }
+
+    public long getBelow() { return below; }
+
+    public long getAbove() { return above; }
+
+    // lower edge of bin k of the histogram
+    public double getEdge(int k)
+    {
+        return low + (high - low) * k / bins.length;
+    }
+
+    @Override
+    public String toString()
+    {
+        String res = "n = " + count + ", mean = " + getMean() + ", sd = " + getStandardDeviation()
+                     + ", range = [" + getMin() + ", " + getMax() + "]";
+        if (missing > 0)
+            res += ", missing = " + missing;
+        if (bins != null)
+            res += ", histogram = " + below + " " + Arrays.toString(bins) + " " + above;
+        return res;
+    }
+}
@@ -0,0 +1,103 @@
+package circuit.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flight recorder events of the phases, defined at run time through jdk.jfr.EventFactory so that the sources keep
+ * to Java 8. On runtimes without it no events are made and only the counters are kept.
+ * Created by admin on 10/18/26.
+ */
+class FlightRecorder
+{
+    Object[] factories; // one event factory per phase
+    Method newEvent, begin, end, shouldCommit, commit, set;
+
+    private FlightRecorder() {}
+
+    // methods
+
+    // the events of every phase, null if the runtime has no event factory
+    static FlightRecorder create()
+    {
+        try
+        {
+            FlightRecorder res = new FlightRecorder();
+            Class<?> factory = Class.forName("jdk.jfr.EventFactory"), event = Class.forName("jdk.jfr.Event");
+            Class<?> element = Class.forName("jdk.jfr.AnnotationElement"), value = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> annotation = element.getConstructor(Class.class, Object.class);
+            Constructor<?> field = value.getConstructor(Class.class, String.class);
+            Method create = factory.getMethod("create", List.class, List.class);
+
+            List<Object> fields = Arrays.asList(field.newInstance(int.class, "size"),
+                                                field.newInstance(int.class, "nonzeros"));
+
+            res.factories = new Object[Phase.values().length];
+            for (Phase phase : Phase.values())
+            {
+                List<Object> annotations = new ArrayList<>();
+                annotations.add(annotation.newInstance(type("Name"), "circuit." + phase.label));
+                annotations.add(annotation.newInstance(type("Label"), phase.label));
+                annotations.add(annotation.newInstance(type("Description"), phase.description));
+                annotations.add(annotation.newInstance(type("Category"), new String[]{"Circuit", "Solver"}));
+                res.factories[phase.ordinal()] = create.invoke(null, annotations, fields);
+            }
+
+            res.newEvent = factory.getMethod("newEvent");
+            res.begin = event.getMethod("begin");
+            res.end = event.getMethod("end");
+            res.shouldCommit = event.getMethod("shouldCommit");
+            res.commit = event.getMethod("commit");
+            res.set = event.getMethod("set", int.class, Object.class);
+            return res;
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> type(String name) throws ClassNotFoundException
+    {
+        return (Class<? extends Annotation>) Class.forName("jdk.jfr." + name);
+    }
+
+    // a started event of phase, null if it could not be made
+    protected Object begin(Phase phase)
+    {
+        try
+        {
+            Object event = newEvent.invoke(factories[phase.ordinal()]);
+            begin.invoke(event);
+            return event;
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return null;
+        }
+    }
+
+    // end the event and commit it if a recording asks for it
+    protected void end(Object event, int size, int nonzeros)
+    {
+        try
+        {
+            end.invoke(event);
+            if ((Boolean) shouldCommit.invoke(event))
+            {
+                set.invoke(event, 0, size);
+                set.invoke(event, 1, nonzeros);
+                commit.invoke(event);
+            }
+        }
+        catch (ReflectiveOperationException ignored)
+        {
+            // the event is dropped, the counters do not depend on it
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package circuit.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Switch for the instrumentation of the solver, off unless the circuit.metrics system property is true or enable
+ * is called. While it is off the only cost at each instrumented point is reading the enabled flag.
+ * Once enabled, the phases are timed into the counters of SolverMetrics, published over JMX, and recorded as flight
+ * recorder events when the runtime supports them.
+ * Created by admin on 10/18/26.
+ */
+public final class Instrumentation
+{
+    public static final String NAME = "circuit:type=SolverMetrics";
+
+    static volatile boolean enabled;
+    static final SolverMetrics metrics = new SolverMetrics();
+    static volatile FlightRecorder recorder;
+    static boolean registered;
+
+    static
+    {
+        if (Boolean.getBoolean("circuit.metrics"))
+            enable();
+    }
+
+    private Instrumentation() {}
+
+    // methods
+
+    public static boolean isEnabled() { return enabled; }
+
+    // the counters, kept whether the instrumentation is enabled or not
+    public static SolverMetrics getMetrics() { return metrics; }
+
+    public static synchronized void enable()
+    {
+        if (recorder == null)
+            recorder = FlightRecorder.create();
+
+        if (!registered)
+        {
+            try
+            {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(NAME);
+                if (!server.isRegistered(name))
+                    server.registerMBean(metrics, name);
+                registered = true;
+            }
+            catch (JMException | SecurityException e)
+            {
+                // the counters can still be read through getMetrics
+            }
+        }
+        enabled = true;
+    }
+
+    public static void disable()
+    {
+        enabled = false;
+    }
+
+    // start timing phase, null while the instrumentation is disabled
+    public static Span begin(Phase phase)
+    {
+        if (!enabled)
+            return null;
+
+        FlightRecorder recorder = Instrumentation.recorder;
+        return new Span(phase, recorder == null ? null : recorder.begin(phase));
+    }
+}
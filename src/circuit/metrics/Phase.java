@@ -0,0 +1,21 @@
+package circuit.metrics;
+
+/**
+ * The phases of solving a circuit that are timed, each recorded as its own kind of flight recorder event.
+ * Created by admin on 10/18/26.
+ */
+public enum Phase
+{
+    RESTAMP("Restamp", "Relations of the edited elements set again"),
+    ASSEMBLE("Assemble", "Relations of a block gathered into a sparse matrix"),
+    FACTOR("Factor", "Factorization of a block brought up to date"),
+    SOLVE("Solve", "Substitution with the factorization of a block");
+
+    final String label, description;
+
+    Phase(String label, String description)
+    {
+        this.label = label;
+        this.description = description;
+    }
+}
@@ -0,0 +1,104 @@
+package circuit.metrics;
+
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters behind SolverMetricsMBean. Blocks are solved in parallel, so the counters are adders and the
+ * figures of the last factorization are whichever block wrote them last.
+ * Created by admin on 10/18/26.
+ */
+public class SolverMetrics implements SolverMetricsMBean
+{
+    final LongAdder restamps = new LongAdder(), solves = new LongAdder(), factorizations = new LongAdder(),
+            cacheHits = new LongAdder(), rankOneUpdates = new LongAdder();
+    final LongAdder[] times = new LongAdder[Phase.values().length];
+
+    volatile int rows, cols, nonzeros, fillIn;
+    volatile double minPivot, maxPivot;
+
+    SolverMetrics()
+    {
+        for (int k = 0; k < times.length; k++)
+            times[k] = new LongAdder();
+    }
+
+    // methods
+
+    public long getRestamps() { return restamps.sum(); }
+
+    public long getSolves() { return solves.sum(); }
+
+    public long getFactorizations() { return factorizations.sum(); }
+
+    public long getCacheHits() { return cacheHits.sum(); }
+
+    public long getRankOneUpdates() { return rankOneUpdates.sum(); }
+
+    public int getRows() { return rows; }
+
+    public int getCols() { return cols; }
+
+    public int getNonzeros() { return nonzeros; }
+
+    public int getFillIn() { return fillIn; }
+
+    public double getMinPivot() { return minPivot; }
+
+    public double getMaxPivot() { return maxPivot; }
+
+    public long getRestampTime() { return times[Phase.RESTAMP.ordinal()].sum(); }
+
+    public long getAssembleTime() { return times[Phase.ASSEMBLE.ordinal()].sum(); }
+
+    public long getFactorTime() { return times[Phase.FACTOR.ordinal()].sum(); }
+
+    public long getSolveTime() { return times[Phase.SOLVE.ordinal()].sum(); }
+
+    public void reset()
+    {
+        restamps.reset();
+        solves.reset();
+        factorizations.reset();
+        cacheHits.reset();
+        rankOneUpdates.reset();
+        for (LongAdder time : times)
+            time.reset();
+        rows = cols = nonzeros = fillIn = 0;
+        minPivot = maxPivot = 0;
+    }
+
+    // record a new factorization of a
+    public void factored(SparseMatrix a, SparseLU lu)
+    {
+        factorizations.increment();
+        rows = a.getRows();
+        cols = a.getCols();
+        nonzeros = a.getNonzeros();
+        fillIn = lu.getNonzeros() - a.getNonzeros();
+        minPivot = lu.getMinPivot();
+        maxPivot = lu.getMaxPivot();
+    }
+
+    // record an assembly served by the last factorization after the given number of rank one updates
+    public void reused(int updates)
+    {
+        cacheHits.increment();
+        rankOneUpdates.add(updates);
+    }
+
+    public void solved()
+    {
+        solves.increment();
+    }
+
+    // add the duration of a phase, in nanoseconds
+    void timed(Phase phase, long time)
+    {
+        times[phase.ordinal()].add(time);
+        if (phase == Phase.RESTAMP)
+            restamps.increment();
+    }
+}
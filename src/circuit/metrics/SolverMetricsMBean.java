@@ -0,0 +1,44 @@
+package circuit.metrics;
+
+/**
+ * Counters of the solver, published over JMX as circuit:type=SolverMetrics.
+ * Created by admin on 10/18/26.
+ */
+public interface SolverMetricsMBean
+{
+    long getRestamps();
+
+    long getSolves();
+
+    long getFactorizations();
+
+    // assemblies whose factorization was reused, either unchanged or through rank one updates
+    long getCacheHits();
+
+    long getRankOneUpdates();
+
+    // dimensions of the last factored matrix
+    int getRows();
+
+    int getCols();
+
+    int getNonzeros();
+
+    // entries of the last factorization beyond those of the factored matrix
+    int getFillIn();
+
+    double getMinPivot();
+
+    double getMaxPivot();
+
+    // total time spent in each phase, in nanoseconds
+    long getRestampTime();
+
+    long getAssembleTime();
+
+    long getFactorTime();
+
+    long getSolveTime();
+
+    void reset();
+}
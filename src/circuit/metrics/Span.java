@@ -0,0 +1,35 @@
+package circuit.metrics;
+
+/**
+ * One timed run of a phase, created by Instrumentation.begin only while instrumentation is enabled.
+ * Created by admin on 10/18/26.
+ */
+public final class Span
+{
+    final Phase phase;
+    final long start;
+    final Object event; // flight recorder event, null without one
+
+    Span(Phase phase, Object event)
+    {
+        this.phase = phase;
+        this.event = event;
+        start = System.nanoTime();
+    }
+
+    // methods
+
+    public void end(int size)
+    {
+        end(size, 0);
+    }
+
+    // size is the number of elements or variables the phase went through, nonzeros those of its matrix if any
+    public void end(int size, int nonzeros)
+    {
+        Instrumentation.metrics.timed(phase, System.nanoTime() - start);
+        FlightRecorder recorder = Instrumentation.recorder;
+        if (event != null && recorder != null)
+            recorder.end(event, size, nonzeros);
+    }
+}
@@ -0,0 +1,95 @@
+package circuit.tests;
+
+import circuit.*;
+import circuit.metrics.Instrumentation;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class BlockTest
+{
+    public static void main(String[] args)
+    {
+        Instrumentation.enable();
+
+        Nets edited = new Nets(1, false);
+        edited.circuit.setUpdateLimit(0);
+        edited.read();
+
+        // changing a resistance of the first net factors its block alone
+        long before = Instrumentation.getMetrics().getFactorizations();
+        edited.r.setResistance(4);
+        edited.read();
+        System.out.println((Instrumentation.getMetrics().getFactorizations() - before)
+                           + " blocks were factored after editing one net, expected 1");
+
+        // removing the middle node splits the third net, whose far part is then fixed on its own
+        edited.circuit.removeNode(edited.m);
+        edited.c.setPotential(2);
+
+        Nets fresh = new Nets(4, true);
+        System.out.println("Edited nets differ from fresh ones by " + edited.difference(fresh)
+                           + ", expected below 1e-12");
+        System.out.println("The potential of D is " + edited.d.getPotential() + ", expected 2.5");
+    }
+
+    // three separate nets, each with a fixed node of its own, the third one joined through m unless it is split
+    static class Nets
+    {
+        Circuit circuit = new Circuit();
+        Node[] nodes;
+        Node m, c, d;
+        Resistor r;
+
+        Nets(double resistance, boolean split)
+        {
+            Node g1 = new Node(circuit), a1 = new Node(circuit), b1 = new Node(circuit);
+            g1.setPotential(0);
+            new VoltageSource(circuit, g1, a1, 5);
+            r = new Resistor(circuit, a1, b1, resistance);
+            new Resistor(circuit, b1, g1, 1);
+
+            Node g2 = new Node(circuit), a2 = new Node(circuit), b2 = new Node(circuit);
+            g2.setPotential(0);
+            new CurrentSource(circuit, g2, a2, 1);
+            new Resistor(circuit, a2, g2, 2);
+            new Resistor(circuit, a2, b2, 3);
+            new Resistor(circuit, b2, g2, 3);
+
+            Node g3 = new Node(circuit), a3 = new Node(circuit);
+            c = new Node(circuit);
+            d = new Node(circuit);
+            g3.setPotential(0);
+            new VoltageSource(circuit, g3, a3, 10);
+            if (split)
+                c.setPotential(2);
+            else
+            {
+                m = new Node(circuit);
+                new Resistor(circuit, a3, m, 1);
+                new Resistor(circuit, m, g3, 1);
+                new Resistor(circuit, m, c, 1);
+            }
+            new Resistor(circuit, c, d, 1);
+            new CurrentSource(circuit, c, d, 1);
+            new Resistor(circuit, d, c, 1);
+
+            nodes = new Node[] {g1, a1, b1, g2, a2, b2, g3, a3, c, d};
+        }
+
+        void read()
+        {
+            for (Node node : nodes)
+                node.getPotential();
+        }
+
+        // largest difference between the potentials of these nets and other
+        double difference(Nets other)
+        {
+            double res = 0;
+            for (int i = 0; i < nodes.length; i++)
+                res = Math.max(res, Math.abs(nodes[i].getPotential() - other.nodes[i].getPotential()));
+            return res;
+        }
+    }
+}
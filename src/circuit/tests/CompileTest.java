@@ -0,0 +1,56 @@
+package circuit.tests;
+
+import circuit.*;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class CompileTest
+{
+    public static void main(String[] args)
+    {
+        Circuit circuit = new Circuit();
+        Node ground, a, b, c;
+
+        ground = new Node(circuit);
+        a = new Node(circuit);
+        b = new Node(circuit);
+        c = new Node(circuit);
+
+        ground.setPotential(0);
+
+        VoltageSource source = new VoltageSource(circuit, ground, a, 12);
+        CurrentSource load = new CurrentSource(circuit, c, ground, 0.5);
+        Component[] comps = {source, load, new Resistor(circuit, a, b, 2), new Resistor(circuit, b, ground, 4),
+                             new Resistor(circuit, b, c, 3), new Resistor(circuit, c, ground, 6)};
+        Node[] nodes = {ground, a, b, c};
+
+        CompiledCircuit compiled = circuit.compile();
+        System.out.println("Compiled circuit differs by " + difference(compiled, nodes, comps) + ", expected 0.0");
+
+        // the snapshot keeps its values while the circuit is edited
+        source.setVoltage(6);
+        load.setCurrent(-1);
+        System.out.println("The potential of A in the snapshot is " + compiled.getPotential(a) + ", expected 12.0");
+
+        // other source values on the snapshot, against the circuit solved with them
+        CompiledCircuit changed = compiled.withSources(new int[] {compiled.indexOf(source), compiled.indexOf(load)},
+                                                       new double[] {6, -1});
+        System.out.println("Snapshot with other sources differs by " + difference(changed, nodes, comps)
+                           + ", expected below 1e-12");
+    }
+
+    // largest difference between the values of compiled and those of the circuit
+    static double difference(CompiledCircuit compiled, Node[] nodes, Component[] comps)
+    {
+        double res = 0;
+        for (Node node : nodes)
+            res = Math.max(res, Math.abs(compiled.getPotential(node) - node.getPotential()));
+        for (Component comp : comps)
+        {
+            res = Math.max(res, Math.abs(compiled.getCurrent(comp) - comp.currentFromStart()));
+            res = Math.max(res, Math.abs(compiled.getVoltage(comp) - comp.voltageFromStart()));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,77 @@
+package circuit.tests;
+
+import circuit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class KronTest
+{
+    public static void main(String[] args)
+    {
+        // a star of equal resistors reduces to a delta of three times their value
+        Circuit star = new Circuit();
+        Node centre = new Node(star);
+        List<Node> tips = Arrays.asList(new Node(star), new Node(star), new Node(star));
+        for (Node tip : tips)
+            new Resistor(star, centre, tip, 1);
+        Macromodel delta = new KronReduction().reduce(Arrays.asList(centre), tips);
+        System.out.println("The delta resistance is " + delta.getResistance(0, 1) + ", expected 3.0");
+
+        Chain full = new Chain(), reduced = new Chain();
+        KronReduction kron = new KronReduction();
+
+        for (int k = 0; k < Chain.CELLS; k++)
+            kron.replace(reduced.cells.get(k), reduced.ports.get(k));
+
+        double error = 0;
+        for (int i = 0; i < full.nodes.length; i++)
+            error = Math.max(error, Math.abs(full.nodes[i].getPotential() - reduced.nodes[i].getPotential()));
+
+        System.out.println("Reduced chain differs from the full one by " + error + ", expected below 1e-12");
+        System.out.println(kron.getReductions() + " of " + Chain.CELLS + " cells were reduced, "
+                           + kron.getCacheSize() + " model cached, expected 1 and 1");
+    }
+
+    // a chain of identical three port cells, each with two internal nodes, fed by a source and loaded at every port
+    static class Chain
+    {
+        static final int CELLS = 4;
+
+        Circuit circuit = new Circuit();
+        Node[] nodes = new Node[2 * CELLS + 1]; // ports of the cells, shared between neighbours
+        ArrayList<List<Node>> cells = new ArrayList<>(), ports = new ArrayList<>(); // internal nodes and ports
+
+        Chain()
+        {
+            Node ground = new Node(circuit);
+            ground.setPotential(0);
+
+            for (int i = 0; i < nodes.length; i++)
+            {
+                nodes[i] = new Node(circuit);
+                new Resistor(circuit, nodes[i], ground, 10 + i);
+            }
+            new VoltageSource(circuit, ground, nodes[0], 5);
+
+            for (int k = 0; k < CELLS; k++)
+            {
+                Node p = nodes[2 * k], q = nodes[2 * k + 1], r = nodes[2 * k + 2],
+                     x = new Node(circuit), y = new Node(circuit);
+
+                new Resistor(circuit, p, x, 1);
+                new Resistor(circuit, q, x, 2);
+                new Resistor(circuit, x, y, 1);
+                new Resistor(circuit, y, r, 3);
+                new Resistor(circuit, y, p, 2);
+
+                cells.add(Arrays.asList(x, y));
+                ports.add(Arrays.asList(p, q, r));
+            }
+        }
+    }
+}
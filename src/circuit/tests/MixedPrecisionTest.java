@@ -0,0 +1,66 @@
+package circuit.tests;
+
+import circuit.*;
+
+import java.util.ArrayList;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class MixedPrecisionTest
+{
+    public static void main(String[] args)
+    {
+        Ladder mixed = new Ladder(true), exact = new Ladder(false);
+
+        System.out.println("Mixed precision differs from double by " + mixed.difference(exact)
+                           + ", expected below 1e-9");
+
+        // resistances spread over six decades, then the ladder edited and solved again
+        for (int k = 0; k < mixed.resistors.size(); k += 3)
+        {
+            double value = Math.pow(10, k % 7 - 3);
+            mixed.resistors.get(k).setResistance(value);
+            exact.resistors.get(k).setResistance(value);
+        }
+        mixed.source.setVoltage(100);
+        exact.source.setVoltage(100);
+
+        System.out.println("After spreading the resistances, it differs by " + mixed.difference(exact)
+                           + ", expected below 1e-9");
+    }
+
+    static class Ladder
+    {
+        Circuit circuit = new Circuit();
+        ArrayList<Node> nodes = new ArrayList<>();
+        ArrayList<Resistor> resistors = new ArrayList<>();
+        VoltageSource source;
+
+        Ladder(boolean mixed)
+        {
+            circuit.setMixedPrecision(mixed);
+
+            Node ground = new Node(circuit);
+            ground.setPotential(0);
+            nodes.add(new Node(circuit));
+            source = new VoltageSource(circuit, ground, nodes.get(0), 1);
+
+            for (int i = 1; i < 100; i++)
+            {
+                nodes.add(new Node(circuit));
+                resistors.add(new Resistor(circuit, nodes.get(i - 1), nodes.get(i), 1 + i % 3));
+                resistors.add(new Resistor(circuit, nodes.get(i), ground, 10 + i % 11));
+            }
+        }
+
+        // largest difference between the potentials of this ladder and other, relative to the driven end
+        double difference(Ladder other)
+        {
+            double res = 0;
+            for (int i = 0; i < nodes.size(); i++)
+                res = Math.max(res, Math.abs(nodes.get(i).getPotential() - other.nodes.get(i).getPotential()));
+            return res / Math.abs(nodes.get(0).getPotential());
+        }
+    }
+}
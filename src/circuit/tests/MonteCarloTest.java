@@ -0,0 +1,52 @@
+package circuit.tests;
+
+import circuit.*;
+import circuit.aux.Statistics;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class MonteCarloTest
+{
+    public static void main(String[] args)
+    {
+        Circuit circuit = new Circuit();
+        Node ground, a, b;
+
+        ground = new Node(circuit);
+        a = new Node(circuit);
+        b = new Node(circuit);
+
+        ground.setPotential(0);
+
+        new VoltageSource(circuit, ground, a, 10);
+        Resistor top = new Resistor(circuit, a, b, 1000);
+        Resistor bottom = new Resistor(circuit, b, ground, 1000);
+
+        MonteCarlo exact = new MonteCarlo();
+        exact.addTolerance(top, 0, MonteCarlo.Distribution.UNIFORM);
+        exact.probePotential(b);
+
+        // without tolerance every trial is the direct solution
+        Statistics nominal = circuit.monteCarlo(exact, 100, 1)[0];
+        System.out.println("Mean without tolerance is " + nominal.getMean() + ", expected " + b.getPotential()
+                           + ", deviation " + nominal.getStandardDeviation());
+
+        MonteCarlo analysis = new MonteCarlo();
+        analysis.addTolerance(top, 0.05, MonteCarlo.Distribution.UNIFORM);
+        analysis.addTolerance(bottom, 0.05, MonteCarlo.Distribution.UNIFORM);
+        int probe = analysis.probePotential(b);
+
+        // more trials than a chunk, so that they run on several streams
+        Statistics first = circuit.monteCarlo(analysis, 5000, 42)[probe],
+                second = circuit.monteCarlo(analysis, 5000, 42)[probe],
+                other = circuit.monteCarlo(analysis, 5000, 43)[probe];
+
+        System.out.println("Same seed gives mean " + first.getMean() + " and " + second.getMean() + ", deviation "
+                           + first.getStandardDeviation() + " and " + second.getStandardDeviation()
+                           + ", expected equal");
+        System.out.println("Another seed gives mean " + other.getMean() + ", expected close but different");
+        System.out.println("Range is [" + first.getMin() + ", " + first.getMax() + "], expected within [4.75, 5.25]");
+        System.out.println("The potential of B after the analysis is " + b.getPotential() + ", expected 5.0");
+    }
+}
@@ -0,0 +1,72 @@
+package circuit.tests;
+
+import circuit.*;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class NodalTest
+{
+    static final int SIZE = 40;
+
+    public static void main(String[] args)
+    {
+        Grid direct = new Grid();
+        direct.circuit.setIterativeSolver(null, 0, 0);
+
+        for (NodalSolver.Preconditioner preconditioner : NodalSolver.Preconditioner.values())
+        {
+            Grid grid = new Grid();
+            grid.circuit.setIterativeSolver(preconditioner, 1e-12, 1000);
+            report(preconditioner.toString(), grid, direct);
+        }
+
+        Grid multigrid = new Grid();
+        multigrid.circuit.setMultigridSolver(1e-12, 500);
+        report("multigrid cycles", multigrid, direct);
+    }
+
+    static void report(String name, Grid grid, Grid direct)
+    {
+        double error = grid.difference(direct);
+        NodalSolver solver = grid.circuit.getIterativeSolver();
+        System.out.println(name + " differs from the direct solve by " + error + ", expected below 1e-8, in "
+                           + solver.getIterations() + " iterations" + " on " + solver.getLevels() + " levels");
+    }
+
+    // a square grid of resistors grounded on one corner and fed on the other, with current drawn from every tenth node
+    static class Grid
+    {
+        Circuit circuit = new Circuit();
+        Node[] nodes = new Node[SIZE * SIZE];
+
+        Grid()
+        {
+            Node ground = new Node(circuit);
+            ground.setPotential(0);
+
+            for (int i = 0; i < SIZE * SIZE; i++)
+            {
+                nodes[i] = new Node(circuit);
+                if (i % SIZE > 0)
+                    new Resistor(circuit, nodes[i - 1], nodes[i], 1 + i % 7 * 0.1);
+                if (i >= SIZE)
+                    new Resistor(circuit, nodes[i - SIZE], nodes[i], 1 + i % 5 * 0.1);
+                if (i % 10 == 3)
+                    new CurrentSource(circuit, nodes[i], ground, 0.001);
+            }
+
+            new Resistor(circuit, ground, nodes[0], 0.5);
+            new CurrentSource(circuit, ground, nodes[SIZE * SIZE - 1], 1);
+        }
+
+        // largest difference between the potentials of this grid and other
+        double difference(Grid other)
+        {
+            double res = 0;
+            for (int i = 0; i < nodes.length; i++)
+                res = Math.max(res, Math.abs(nodes[i].getPotential() - other.nodes[i].getPotential()));
+            return res;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package circuit.tests;
+
+import circuit.*;
+import circuit.metrics.Instrumentation;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class ReductionTest
+{
+    public static void main(String[] args)
+    {
+        Instrumentation.enable();
+
+        for (boolean reduce : new boolean[]{false, true})
+        {
+            Circuit circuit = new Circuit();
+            Node a, b, c;
+
+            circuit.setNetworkReduction(reduce);
+
+            a = new Node(circuit);
+            b = new Node(circuit);
+            c = new Node(circuit);
+
+            c.setPotential(1);
+
+            new VoltageSource(circuit, c, a, 9);
+
+            // the parallel resistors between b and c, then in series with the one between a and b, collapse to one
+            new Resistor(circuit, a, b, 1);
+            Resistor r = new Resistor(circuit, b, c, 3);
+            Resistor s = new Resistor(circuit, b, c, 2 * r.getResistance());
+
+            System.out.println((reduce ? "Reduced: " : "Direct: ") + "the currents through BC are "
+                               + r.currentFromStart() + " and " + s.currentFromStart() + ", expected 2.0 and 1.0");
+            System.out.println("The potential of B is " + b.getPotential() + ", expected 7.0");
+            System.out.println("The factored system has " + Instrumentation.getMetrics().getRows() + " rows");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package circuit.tests;
+
+import circuit.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class SnapshotTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        Circuit circuit = new Circuit();
+        Node ground = new Node(circuit), previous = new Node(circuit), node;
+
+        ground.setPotential(0);
+
+        VoltageSource source = new VoltageSource(circuit, ground, previous, 10);
+        CurrentSource load = null;
+
+        // a ladder with a current source on every fifth rung
+        for (int i = 0; i < 50; i++)
+        {
+            node = new Node(circuit);
+            new Resistor(circuit, previous, node, 1 + i % 3);
+            if (i % 5 == 4)
+                load = new CurrentSource(circuit, node, ground, 0.01 * i);
+            else
+                new Resistor(circuit, node, ground, 10);
+            previous = node;
+        }
+
+        CompiledCircuit compiled = circuit.compile();
+        int[] sources = {compiled.indexOf(source), compiled.indexOf(load)};
+        double[] values = {5, -0.2};
+        CompiledCircuit changed = compiled.withSources(sources, values);
+
+        for (boolean factorization : new boolean[] {true, false})
+        {
+            Path path = Files.createTempFile("snapshot", ".bin");
+            try
+            {
+                compiled.write(path, factorization);
+                CompiledCircuit read = CompiledCircuit.read(path);
+
+                System.out.println((factorization ? "With" : "Without") + " the factorization, the snapshot read back"
+                                   + " differs by " + difference(read, compiled) + ", expected 0.0");
+                System.out.println("  and with other sources by "
+                                   + difference(read.withSources(sources, values), changed)
+                                   + ", expected below 1e-12");
+            }
+            finally
+            {
+                Files.delete(path);
+            }
+        }
+
+        // the snapshot with other sources against the circuit solved with them
+        source.setVoltage(5);
+        load.setCurrent(-0.2);
+        CompiledCircuit solved = circuit.compile();
+        System.out.println("Snapshot with other sources differs from the circuit solved with them by "
+                           + difference(changed, solved) + ", expected below 1e-12");
+    }
+
+    // largest difference between the values of two snapshots of the same circuit, by index
+    static double difference(CompiledCircuit x, CompiledCircuit y)
+    {
+        double res = 0;
+        for (int i = 0; i < x.getNodeCount(); i++)
+            res = Math.max(res, Math.abs(x.getPotential(i) - y.getPotential(i)));
+        for (int i = 0; i < x.getComponentCount(); i++)
+        {
+            if (x.getStart(i) != y.getStart(i) || x.getEnd(i) != y.getEnd(i) || x.getType(i) != y.getType(i))
+                return Double.NaN;
+            res = Math.max(res, Math.abs(x.getCurrent(i) - y.getCurrent(i)));
+            res = Math.max(res, Math.abs(x.getVoltage(i) - y.getVoltage(i)));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,65 @@
+package circuit.tests;
+
+import circuit.aux.SparseLU;
+import circuit.aux.SparseMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class SparseLUTest
+{
+    public static void main(String[] args)
+    {
+        // a tridiagonal system whose first pivot is 0, so that rows have to be exchanged
+        int n = 6;
+        SparseMatrix a = new SparseMatrix(n, n);
+        double[] x = new double[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            a.set(i, i, i == 0 ? 0 : 4);
+            if (i > 0)
+                a.set(i, i - 1, -1);
+            if (i + 1 < n)
+                a.set(i, i + 1, -1);
+            x[i] = i + 1;
+        }
+
+        SparseLU lu = new SparseLU();
+        lu.analyze(a);
+        lu.factor(a);
+
+        System.out.println("Rank " + lu.getRank() + ", expected " + n);
+        System.out.println(Arrays.toString(lu.solve(a.transform(x))) + ", expected " + Arrays.toString(x));
+
+        // the third column is the sum of the first two, and the last row the sum of the others
+        SparseMatrix b = new SparseMatrix(4, 3);
+        double[][] rows = {{1, 0, 1}, {0, 2, 2}, {1, 1, 2}, {2, 3, 5}};
+        for (int i = 0; i < rows.length; i++)
+            for (int j = 0; j < 3; j++)
+                if (rows[i][j] != 0)
+                    b.set(i, j, rows[i][j]);
+
+        lu = new SparseLU();
+        lu.analyze(b);
+        lu.factor(b);
+
+        double[] y = lu.solve(new double[]{2, 4, 4, 10});
+        System.out.println("Rank " + lu.getRank() + ", expected 2");
+        System.out.println("Residual of a consistent right-hand side "
+                           + Arrays.toString(residual(b, y, new double[]{2, 4, 4, 10})) + ", expected zeros");
+        System.out.println("Determined " + Arrays.toString(lu.determined()) + ", expected all false");
+        System.out.println("Inconsistent right-hand side gives " + Arrays.toString(lu.solve(new double[]{2, 4, 4, 11}))
+                           + ", expected null");
+    }
+
+    private static double[] residual(SparseMatrix a, double[] x, double[] b)
+    {
+        double[] res = a.transform(x);
+        for (int i = 0; i < res.length; i++)
+            res[i] = b[i] - res[i];
+        return res;
+    }
+}
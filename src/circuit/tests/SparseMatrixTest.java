@@ -0,0 +1,30 @@
+package circuit.tests;
+
+import circuit.aux.SparseMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class SparseMatrixTest
+{
+    public static void main(String[] args)
+    {
+        SparseMatrix a = new SparseMatrix();
+
+        a.resize(2, 3);
+
+        a.set(0, 1, 3);
+        a.set(1, 0, 2);
+        a.set(1, 2, -1);
+
+        a.adjoinRow(1, new int[]{0, 2}, new double[]{1, 1}, 2);
+        a.addRow(2, 1, -2);
+
+        System.out.println(Arrays.toString(a.transform(new double[]{1, 2, 3})));
+
+        System.out.println(a);
+        System.out.println(a.transpose());
+    }
+}
@@ -0,0 +1,72 @@
+package circuit.tests;
+
+import circuit.*;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class SweepTest
+{
+    public static void main(String[] args)
+    {
+        Circuit circuit = new Circuit();
+        Node ground, a, b, c;
+
+        ground = new Node(circuit);
+        a = new Node(circuit);
+        b = new Node(circuit);
+        c = new Node(circuit);
+
+        ground.setPotential(0);
+
+        VoltageSource source = new VoltageSource(circuit, ground, a, 1);
+        CurrentSource load = new CurrentSource(circuit, c, ground, 0.1);
+        new Resistor(circuit, a, b, 2);
+        Resistor r = new Resistor(circuit, b, ground, 1);
+        new Resistor(circuit, b, c, 3);
+
+        double[] voltages = {1, 2, 5}, currents = {0, 0.5}, resistances = {1, 4};
+
+        // sources only, solved with one factorization, then resistances as well
+        Sweep sources = new Sweep(), all = new Sweep();
+        sources.addParameter(source, voltages);
+        sources.addParameter(load, currents);
+        all.addParameter(source, voltages);
+        all.addParameter(r, resistances);
+        int[] probes = {sources.probePotential(c), sources.probeCurrent(r)};
+        all.probePotential(c);
+        all.probeCurrent(r);
+
+        double[][] res = circuit.sweep(sources), resAll = circuit.sweep(all);
+        double error = 0, errorAll = 0;
+
+        // the same points set one at a time on the circuit
+        for (int i = 0; i < voltages.length; i++)
+        {
+            source.setVoltage(voltages[i]);
+            for (int j = 0; j < currents.length; j++)
+            {
+                load.setCurrent(currents[j]);
+                error = Math.max(error, Math.abs(res[probes[0]][i * currents.length + j] - c.getPotential()));
+                error = Math.max(error, Math.abs(res[probes[1]][i * currents.length + j] - r.currentFromStart()));
+            }
+        }
+
+        load.setCurrent(0.1);
+        for (int i = 0; i < voltages.length; i++)
+        {
+            source.setVoltage(voltages[i]);
+            for (int j = 0; j < resistances.length; j++)
+            {
+                r.setResistance(resistances[j]);
+                errorAll = Math.max(errorAll, Math.abs(resAll[0][i * resistances.length + j] - c.getPotential()));
+                errorAll = Math.max(errorAll, Math.abs(resAll[1][i * resistances.length + j] - r.currentFromStart()));
+            }
+        }
+
+        System.out.println("Source sweep of " + sources.getPoints() + " points differs by " + error
+                           + ", expected below 1e-12");
+        System.out.println("Resistance sweep of " + all.getPoints() + " points differs by " + errorAll
+                           + ", expected below 1e-12");
+    }
+}
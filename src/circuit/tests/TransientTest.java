@@ -0,0 +1,34 @@
+package circuit.tests;
+
+import circuit.*;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class TransientTest
+{
+    public static void main(String[] args)
+    {
+        Circuit circuit = new Circuit();
+        Node ground, a, b;
+
+        ground = new Node(circuit);
+        a = new Node(circuit);
+        b = new Node(circuit);
+
+        ground.setPotential(0);
+
+        // charge a 1 uF capacitor through 1 kOhm, with a time constant of 1 ms
+        new VoltageSource(circuit, ground, a, 1);
+        new Resistor(circuit, a, b, 1000);
+        Capacitor c = new Capacitor(circuit, ground, b, 1e-6);
+
+        Transient analysis = new Transient(circuit, 1e-6, Transient.Method.TRAPEZOIDAL);
+        analysis.setInitialVoltage(c, 0);
+        int probe = analysis.probeVoltage(c);
+
+        double[][] res = analysis.run(1000);
+
+        System.out.println("The voltage of C after 1 ms is " + res[probe][999] + ", expected " + (1 - Math.exp(-1)));
+    }
+}
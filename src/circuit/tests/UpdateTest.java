@@ -0,0 +1,66 @@
+package circuit.tests;
+
+import circuit.*;
+import circuit.metrics.Instrumentation;
+
+import java.util.ArrayList;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class UpdateTest
+{
+    public static void main(String[] args)
+    {
+        Instrumentation.enable();
+
+        Ladder updated = new Ladder(16), refactored = new Ladder(0);
+        double error = 0;
+
+        // retune resistors and sources one at a time, reading the whole ladder after each change
+        for (int k = 0; k < 40; k++)
+        {
+            double value = 1 + (k % 7) * 0.5;
+            updated.resistors.get(3 * k % updated.resistors.size()).setResistance(value);
+            refactored.resistors.get(3 * k % refactored.resistors.size()).setResistance(value);
+            if (k % 5 == 0)
+            {
+                updated.source.setVoltage(1 + k);
+                refactored.source.setVoltage(1 + k);
+            }
+
+            for (int i = 0; i < updated.nodes.size(); i++)
+                error = Math.max(error, Math.abs(updated.nodes.get(i).getPotential()
+                                                 - refactored.nodes.get(i).getPotential()));
+        }
+
+        System.out.println("Largest difference between updated and refactored potentials is " + error
+                           + ", expected below 1e-9");
+        System.out.println(Instrumentation.getMetrics().getRankOneUpdates() + " changes were applied as updates");
+    }
+
+    static class Ladder
+    {
+        Circuit circuit = new Circuit();
+        ArrayList<Node> nodes = new ArrayList<>();
+        ArrayList<Resistor> resistors = new ArrayList<>();
+        VoltageSource source;
+
+        Ladder(int updateLimit)
+        {
+            circuit.setUpdateLimit(updateLimit);
+
+            Node ground = new Node(circuit);
+            ground.setPotential(0);
+            nodes.add(new Node(circuit));
+            source = new VoltageSource(circuit, ground, nodes.get(0), 1);
+
+            for (int i = 1; i < 20; i++)
+            {
+                nodes.add(new Node(circuit));
+                resistors.add(new Resistor(circuit, nodes.get(i - 1), nodes.get(i), 1));
+                resistors.add(new Resistor(circuit, nodes.get(i), ground, 10));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package circuit.tests;
+
+import circuit.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Created by admin on 10/18/26.
+ */
+public class WaveformTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        // a few signals over more steps than a block, and more signals than fit 4096 steps in a mapping of 64 MB
+        check(10, 5000);
+        check(22000, 130);
+    }
+
+    // write every probe of a ladder of the given number of stages to a file and compare it with the values computed
+    static void check(int stages, int steps) throws IOException
+    {
+        Transient analysis = ladder(stages);
+        double[][] expected = ladder(stages).run(steps);
+        Path path = Files.createTempFile("waveform", ".bin");
+
+        try
+        {
+            try (WaveformWriter writer = new WaveformWriter(path, analysis))
+            {
+                analysis.run(steps, writer);
+            }
+
+            double error = 0;
+            try (WaveformReader reader = new WaveformReader(path))
+            {
+                for (int k = 0; k < reader.getSignals(); k++)
+                {
+                    double[] values = reader.read(k);
+                    for (int s = 0; s < steps; s++)
+                        error = Math.max(error, Math.abs(values[s] - expected[k][s]));
+                }
+
+                double[] times = reader.getTimes(steps - 1, 1);
+                System.out.println(reader.getSignals() + " signals over " + reader.getSteps() + " steps, expected "
+                                   + expected.length + " over " + steps + ", the last at " + times[0]
+                                   + ", expected " + steps * analysis.getStep());
+            }
+
+            System.out.println("  they differ from the values computed by " + error + ", expected 0.0");
+            System.out.println("  the file takes " + Files.size(path) + " bytes, expected at most "
+                               + (40 + 5L * expected.length + (expected.length + 1) * 8L * steps));
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    // transient analysis of a ladder of series resistors and shunt capacitors, probing every node and component
+    static Transient ladder(int stages)
+    {
+        Circuit circuit = new Circuit();
+        Node ground = new Node(circuit), previous = new Node(circuit), node;
+
+        ground.setPotential(0);
+        new VoltageSource(circuit, ground, previous, 1);
+
+        for (int i = 0; i < stages; i++)
+        {
+            node = new Node(circuit);
+            new Resistor(circuit, previous, node, 100);
+            new Capacitor(circuit, node, ground, 1e-6);
+            previous = node;
+        }
+
+        Transient analysis = new Transient(circuit, 1e-5, Transient.Method.TRAPEZOIDAL);
+        analysis.probeAll();
+        return analysis;
+    }
+}
@@ -0,0 +1,67 @@
+package circuit.aux;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels of Kernels on the widest vectors of the processor, loaded by name when available.
+ * It needs Java 16 or later and --add-modules jdk.incubator.vector, both to compile and to run, so it is kept out of
+ * src; on other runtimes it fails to load and the scalar kernels are used instead.
+ * Products and sums are rounded separately as in the scalar loops, so only dot products differ, in the order of
+ * their additions.
+ * Created by admin on 10/18/26.
+ */
+class VectorKernels extends Kernels
+{
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // methods
+
+    protected int lanes()
+    {
+        return SPECIES.length();
+    }
+
+    protected void axpy(double a, double[] x, double[] y, int n)
+    {
+        DoubleVector factor = DoubleVector.broadcast(SPECIES, a);
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, x, i).mul(factor).add(DoubleVector.fromArray(SPECIES, y, i))
+                        .intoArray(y, i);
+        for (; i < n; i++)
+            y[i] += a * x[i];
+    }
+
+    protected void scale(double a, double[] x, int n)
+    {
+        scale(a, x, x, n);
+    }
+
+    protected void scale(double a, double[] x, double[] res, int n)
+    {
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, x, i).mul(a).intoArray(res, i);
+        for (; i < n; i++)
+            res[i] = x[i] * a;
+    }
+
+    // one partial sum per lane, added up at the end
+    protected double dot(double[] x, double[] y, int n)
+    {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        double res;
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length())
+            sum = DoubleVector.fromArray(SPECIES, x, i).mul(DoubleVector.fromArray(SPECIES, y, i)).add(sum);
+        res = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++)
+            res += x[i] * y[i];
+        return res;
+    }
+}